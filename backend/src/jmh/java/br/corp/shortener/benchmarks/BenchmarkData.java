@@ -0,0 +1,58 @@
+package br.corp.shortener.benchmarks;
+
+import br.corp.shortener.entities.ShortUrl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Massa de dados determinística (semente fixa) compartilhada pelos benchmarks.
+ */
+public final class BenchmarkData {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * {@code count} links com ids sequenciais e códigos distintos de 5 caracteres.
+     */
+    public static List<ShortUrl> links(int count) {
+        List<ShortUrl> links = new ArrayList<>(count);
+        Instant now = Instant.parse("2024-01-01T00:00:00Z");
+        for (int i = 0; i < count; i++) {
+            ShortUrl su = new ShortUrl("https://example.com/page/" + i + "?ref=bench", code(i), now);
+            su.setId((long) i + 1);
+            links.add(su);
+        }
+        return links;
+    }
+
+    /**
+     * Totais de acessos com cauda longa (Zipf aproximado): poucos links concentram a maioria.
+     */
+    public static Map<String, Long> zipfHits(List<ShortUrl> links, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<String, Long> hits = new HashMap<>(links.size() * 2);
+        for (int i = 0; i < links.size(); i++) {
+            hits.put(links.get(i).getCode(), 1_000_000L / (i + 1) + random.nextInt(10));
+        }
+        return hits;
+    }
+
+    // Código base 62 do índice (sempre 5 caracteres, distinto por índice até 62^5)
+    public static String code(int index) {
+        char[] c = new char[5];
+        int v = index;
+        for (int i = 4; i >= 0; i--) {
+            c[i] = ALPHABET.charAt(v % 62);
+            v /= 62;
+        }
+        return new String(c);
+    }
+}
@@ -0,0 +1,43 @@
+package br.corp.shortener.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Executa os benchmarks uma vez por quantidade de threads (variável JMH_THREADS, ex.: 1,4,16,64),
+ * sempre com o profiler de GC (alocação por operação) e resultado JSON em
+ * {@code target/jmh/result-t<threads>.json}. Com {@code -t} na linha de comando, roda só essa
+ * quantidade. Demais argumentos são os do JMH.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        String sweep = System.getenv().getOrDefault("JMH_THREADS", "1");
+        String[] threadCounts = cmd.getThreads().hasValue()
+                ? new String[]{String.valueOf(cmd.getThreads().get())}
+                : sweep.split(",");
+        File out = new File("target/jmh");
+        out.mkdirs();
+        for (String t : threadCounts) {
+            int threads = Integer.parseInt(t.trim());
+            Options options = new OptionsBuilder()
+                    .parent(cmd)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(out, "result-t" + threads + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package br.corp.shortener.benchmarks;
+
+import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.repositories.CodeHits;
+import br.corp.shortener.repositories.ShortUrlRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ShortUrlRepository} em memória para benchmarks: responde às leituras usadas no
+ * redirecionamento e na carga do ranking sem JPA nem banco. Um proxy dinâmico em vez de mock:
+ * o Mockito registraria cada invocação e distorceria a alocação medida. As consultas em streaming
+ * rodam sob {@link #NO_TRANSACTIONS}, que não abre transação.
+ */
+public final class InMemoryShortUrlRepository implements InvocationHandler {
+
+    /**
+     * Gerenciador de transações vazio para os componentes que exigem um.
+     */
+    public static final PlatformTransactionManager NO_TRANSACTIONS = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    private final Map<String, ShortUrl> byCode = new ConcurrentHashMap<>();
+    private final Map<String, Long> hits = new ConcurrentHashMap<>();
+
+    private InMemoryShortUrlRepository() {
+    }
+
+    /**
+     * Cria o repositório com os links e seus totais de acessos (usados pelas consultas da recarga do ranking).
+     */
+    public static ShortUrlRepository of(Collection<ShortUrl> links, Map<String, Long> hitsByCode) {
+        InMemoryShortUrlRepository handler = new InMemoryShortUrlRepository();
+        for (ShortUrl su : links) {
+            handler.byCode.put(su.getCode(), su);
+        }
+        handler.hits.putAll(hitsByCode);
+        return (ShortUrlRepository) Proxy.newProxyInstance(ShortUrlRepository.class.getClassLoader(),
+                new Class<?>[]{ShortUrlRepository.class}, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "findByCode":
+                return Optional.ofNullable(byCode.get((String) args[0]));
+            case "existsByCode":
+                return byCode.containsKey((String) args[0]);
+            case "findTopRanking": {
+                int limit = ((Pageable) args[0]).getPageSize();
+                List<RankingItem> items = new ArrayList<>(hits.size());
+                hits.forEach((code, h) -> {
+                    ShortUrl su = byCode.get(code);
+                    if (su != null && h > 0) items.add(new RankingItem(code, su.getOriginalUrl(), h));
+                });
+                items.sort(Comparator.comparingLong(RankingItem::hits).reversed());
+                return new ArrayList<>(items.subList(0, Math.min(limit, items.size())));
+            }
+            case "streamAllHitCounts": {
+                List<CodeHits> counts = new ArrayList<>(hits.size());
+                hits.forEach((code, h) -> {
+                    if (h > 0) counts.add(new CodeHits() {
+                        public String getCode() { return code; }
+                        public long getHits() { return h; }
+                    });
+                });
+                return counts.stream();
+            }
+            case "findByCodeIn": {
+                List<ShortUrl> found = new ArrayList<>();
+                for (Object code : (Collection<?>) args[0]) {
+                    ShortUrl su = byCode.get((String) code);
+                    if (su != null) found.add(su);
+                }
+                return found;
+            }
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryShortUrlRepository";
+            default:
+                if (method.isDefault()) {
+                    return InvocationHandler.invokeDefault(proxy, method, args);
+                }
+                throw new UnsupportedOperationException(method.getName() + " não suportado no repositório de benchmark");
+        }
+    }
+}
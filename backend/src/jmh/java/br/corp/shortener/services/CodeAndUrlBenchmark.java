@@ -0,0 +1,62 @@
+package br.corp.shortener.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trabalho de CPU do {@code POST /shorten}: geração de código aleatório (SecureRandom
+ * compartilhado, sensível à contenção) e validação/normalização da URL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class CodeAndUrlBenchmark {
+
+    RandomCodeGenerator generator;
+    UrlShortenerService service;
+
+    @Setup
+    public void setup() {
+        generator = new RandomCodeGenerator();
+        // validateAndNormalizeUrl não usa repositórios nem caches
+        service = new UrlShortenerService(null, null, null, null);
+    }
+
+    @Benchmark
+    public String randomCode() {
+        return generator.nextCode();
+    }
+
+    @Benchmark
+    public String normalizeSimpleUrl() {
+        return service.validateAndNormalizeUrl("https://www.google.com/");
+    }
+
+    @Benchmark
+    public String normalizeUrlWithQueryAndFragment() {
+        return service.validateAndNormalizeUrl("  https://user@shop.example.com:8443/a/b/c?utm_source=x&id=42#section-2  ");
+    }
+
+    @Benchmark
+    public void rejectInvalidUrl(Blackhole bh) {
+        try {
+            bh.consume(service.validateAndNormalizeUrl("ftp://example.com/file"));
+        } catch (IllegalArgumentException e) {
+            bh.consume(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.benchmarks.BenchmarkData;
+import br.corp.shortener.benchmarks.InMemoryShortUrlRepository;
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.repositories.ShortUrlRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca do redirecionamento ({@link UrlShortenerService#getByCode}) com repositório em memória,
+ * por camada que responde: Top-100, cache de ShortUrl, cache negativo e "banco" (stub, com
+ * repopulação do cache). Mede o custo das camadas, não o do JDBC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class RedirectLookupBenchmark {
+
+    private static final int LINKS = 50_000;
+    private static final int CACHED = 10_000;
+
+    UrlShortenerService service;
+    ShortUrlCache shortUrlCache;
+    ShortUrl[] top;
+    ShortUrl[] cached;
+    ShortUrl[] uncached;
+    String[] unknown;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<ShortUrl> all = BenchmarkData.links(LINKS);
+        ShortUrlRepository repository = InMemoryShortUrlRepository.of(all, BenchmarkData.zipfHits(all, 7));
+        TopRankingCache ranking = new TopRankingCache(repository, InMemoryShortUrlRepository.NO_TRANSACTIONS, 0.0001, 0.01);
+        ranking.preload();
+        service = new UrlShortenerService(repository, null, ranking, null);
+        shortUrlCache = new ShortUrlCache(CACHED * 2L, 0, 0, Runnable::run);
+        NegativeCodeCache negative = new NegativeCodeCache(100_000, 60_000);
+        service.setShortUrlCache(shortUrlCache);
+        service.setNegativeCodeCache(negative);
+
+        top = all.subList(0, 100).toArray(ShortUrl[]::new);
+        cached = all.subList(100, 100 + CACHED).toArray(ShortUrl[]::new);
+        uncached = all.subList(100 + CACHED, LINKS).toArray(ShortUrl[]::new);
+        for (ShortUrl su : cached) shortUrlCache.put(su);
+        unknown = new String[10_000];
+        for (int i = 0; i < unknown.length; i++) {
+            unknown[i] = BenchmarkData.code(LINKS + i);
+            service.getByCode(unknown[i]); // registra no cache negativo
+        }
+    }
+
+    // Códigos que não estão no cache de ShortUrl voltam a faltar a cada iteração
+    @Setup(Level.Iteration)
+    public void evictUncached() {
+        for (ShortUrl su : uncached) shortUrlCache.invalidate(su.getCode());
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public ShortUrl topHit(Cursor cursor) {
+        return service.getByCode(top[cursor.random.nextInt(top.length)].getCode());
+    }
+
+    @Benchmark
+    public ShortUrl cacheHit(Cursor cursor) {
+        return service.getByCode(cached[cursor.random.nextInt(cached.length)].getCode());
+    }
+
+    @Benchmark
+    public ShortUrl negativeHit(Cursor cursor) {
+        return service.getByCode(unknown[cursor.random.nextInt(unknown.length)]);
+    }
+
+    @Benchmark
+    public ShortUrl repositoryFallback(Cursor cursor) {
+        return service.getByCode(uncached[cursor.random.nextInt(uncached.length)].getCode());
+    }
+}
@@ -0,0 +1,78 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.benchmarks.BenchmarkData;
+import br.corp.shortener.entities.ShortUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ShortUrlCache} sob contenção: leitura por código (acerto e falta) e put com
+ * substituição. A manutenção do Caffeine roda na própria thread (executor síncrono) para que o
+ * custo de despejo apareça na operação medida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class ShortUrlCacheBenchmark {
+
+    // Chaves distintas acessadas; a capacidade do cache é metade disso nos cenários de put
+    @Param({"100000"})
+    int keys;
+
+    ShortUrlCache cache;
+    ShortUrl[] links;
+
+    @Setup
+    public void setup() {
+        List<ShortUrl> all = BenchmarkData.links(keys * 2);
+        links = all.toArray(ShortUrl[]::new);
+        cache = new ShortUrlCache(keys, 0, 0, Runnable::run);
+        for (int i = 0; i < keys; i++) {
+            cache.put(links[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Optional<ShortUrl> getHit(Cursor cursor) {
+        return cache.getByCode(links[cursor.random.nextInt(keys)].getCode());
+    }
+
+    @Benchmark
+    public Optional<ShortUrl> getMiss(Cursor cursor) {
+        return cache.getByCode(links[keys + cursor.random.nextInt(keys)].getCode());
+    }
+
+    @Benchmark
+    public ShortUrl put(Cursor cursor) {
+        // Metade das chaves fica fora da capacidade: cada put pode despejar outra entrada
+        return cache.put(links[cursor.random.nextInt(links.length)]);
+    }
+}
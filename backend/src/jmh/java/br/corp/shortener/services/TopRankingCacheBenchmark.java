@@ -0,0 +1,96 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.benchmarks.BenchmarkData;
+import br.corp.shortener.benchmarks.InMemoryShortUrlRepository;
+import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.entities.ShortUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TopRankingCache}: acesso a membro do Top-100 (caminho sem lock), acesso a código fora
+ * do Top-N (Count-Min Sketch e eventual troca de membro), leitura do ranking e leitura
+ * concorrente com escritas. Rode com {@code -Djmh.threads=1,4,16,64} para ver a contenção.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class TopRankingCacheBenchmark {
+
+    @Param({"10000"})
+    int links;
+
+    TopRankingCache cache;
+    ShortUrl[] members;
+    ShortUrl[] others;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // Recriado por iteração: os acessos medidos alteram o ranking
+        List<ShortUrl> all = BenchmarkData.links(links);
+        cache = new TopRankingCache(InMemoryShortUrlRepository.of(all, BenchmarkData.zipfHits(all, 42)),
+                InMemoryShortUrlRepository.NO_TRANSACTIONS, 0.0001, 0.01);
+        cache.preload();
+        members = all.subList(0, 100).toArray(ShortUrl[]::new);
+        others = all.subList(100, all.size()).toArray(ShortUrl[]::new);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public void onAccessMember(Cursor cursor) {
+        cache.onAccess(members[cursor.random.nextInt(members.length)]);
+    }
+
+    @Benchmark
+    public void onAccessNonMember(Cursor cursor) {
+        cache.onAccess(others[cursor.random.nextInt(others.length)]);
+    }
+
+    @Benchmark
+    public List<RankingItem> getTop() {
+        return cache.getTop();
+    }
+
+    // Painéis lendo o ranking enquanto redirecionamentos o alteram: cada leitura reconstrói o snapshot
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public List<RankingItem> reader() {
+        return cache.getTop();
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(3)
+    public void writer(Cursor cursor) {
+        cache.onAccess(members[cursor.random.nextInt(members.length)]);
+    }
+}
@@ -0,0 +1,131 @@
+package br.corp.shortener.loadtest;
+
+import br.corp.shortener.entities.UrlHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Gera a massa sintética direto no banco (JDBC em lote, antes de a aplicação subir):
+ * {@code links} links com códigos base 62 determinísticos e {@code accesses} acessos
+ * distribuídos por Zipf nos últimos {@code days} dias. O rollup diário e hit_count são
+ * derivados dos acessos por SQL, como no backfill das migrações, e as sequências são
+ * avançadas para além dos ids gerados.
+ */
+final class DatasetSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetSeeder.class);
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int BATCH = 10_000;
+
+    private final JdbcTemplate jdbc;
+    private final LoadTestConfig config;
+
+    DatasetSeeder(JdbcTemplate jdbc, LoadTestConfig config) {
+        this.jdbc = jdbc;
+        this.config = config;
+    }
+
+    void seed() {
+        Long existing = jdbc.queryForObject("SELECT COUNT(*) FROM short_urls", Long.class);
+        if (existing != null && existing > 0) {
+            throw new IllegalStateException("Banco já tem " + existing + " links; use seed=false para reaproveitá-lo");
+        }
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        seedLinks(now);
+        seedAccesses(now);
+        log.info("Building daily rollup and hit counts");
+        jdbc.update("INSERT INTO short_url_daily_hits (short_url_id, access_date, hits) "
+                + "SELECT short_url_id, CAST(accessed_at AS DATE), COUNT(*) FROM short_url_accesses "
+                + "GROUP BY short_url_id, CAST(accessed_at AS DATE)");
+        jdbc.update("UPDATE short_urls SET hit_count = (SELECT COALESCE(SUM(d.hits), 0) "
+                + "FROM short_url_daily_hits d WHERE d.short_url_id = short_urls.id)");
+        // Margem acima do último id: o otimizador pooled do Hibernate reserva blocos de 50
+        jdbc.execute("ALTER SEQUENCE short_urls_seq RESTART WITH " + (config.links() + 1_000L));
+        jdbc.execute("ALTER SEQUENCE short_url_accesses_seq RESTART WITH " + (config.accesses() + 1_000L));
+    }
+
+    private void seedLinks(Instant now) {
+        long started = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < config.links(); i++) {
+            String url = url(i);
+            rows.add(new Object[]{i + 1, url, UrlHash.of(url), code(i),
+                    utc(now.minus(config.days(), ChronoUnit.DAYS).plusSeconds(i % 86_400))});
+            if (rows.size() == BATCH) {
+                flushLinks(rows);
+            }
+        }
+        flushLinks(rows);
+        log.info("Seeded {} links in {} ms", config.links(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void flushLinks(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate("INSERT INTO short_urls (id, original_url, original_url_hash, code, created_at) VALUES (?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+
+    private void seedAccesses(Instant now) {
+        long started = System.nanoTime();
+        ZipfGenerator zipf = new ZipfGenerator(config.links(), config.zipfExponent());
+        SplittableRandom random = new SplittableRandom(config.randomSeed());
+        long windowSeconds = config.days() * 86_400L;
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (long i = 0; i < config.accesses(); i++) {
+            int rank = zipf.sample(random);
+            Instant at = now.minusSeconds(random.nextLong(windowSeconds));
+            rows.add(new Object[]{i + 1, rank, utc(at), "loadtest", null});
+            if (rows.size() == BATCH) {
+                flushAccesses(rows);
+                if ((i + 1) % 1_000_000 == 0) {
+                    log.info("Seeded {} accesses", i + 1);
+                }
+            }
+        }
+        flushAccesses(rows);
+        log.info("Seeded {} accesses in {} ms", config.accesses(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void flushAccesses(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate("INSERT INTO short_url_accesses (id, short_url_id, accessed_at, user_agent, referer) VALUES (?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+
+    /**
+     * Código do link de rank {@code rank} (1 = mais acessado), o mesmo usado pelo tráfego.
+     */
+    static String codeForRank(int rank) {
+        return code(rank - 1);
+    }
+
+    static String url(int index) {
+        return "https://seed.example.com/item/" + index + "?ref=loadtest";
+    }
+
+    // Base 62 do índice com 5 caracteres: distinto até 62^5 links
+    private static String code(int index) {
+        char[] c = new char[5];
+        int v = index;
+        for (int i = 4; i >= 0; i--) {
+            c[i] = ALPHABET.charAt(v % 62);
+            v /= 62;
+        }
+        return new String(c);
+    }
+
+    // Colunas TIMESTAMP guardam o horário UTC (hibernate.jdbc.time_zone=UTC), sem o fuso da JVM
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
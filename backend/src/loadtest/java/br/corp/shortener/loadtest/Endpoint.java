@@ -0,0 +1,26 @@
+package br.corp.shortener.loadtest;
+
+/**
+ * Endpoints exercitados, com o nome usado no relatório (rota, não a URL concreta).
+ */
+enum Endpoint {
+    REDIRECT(Kind.REDIRECT, "GET /{code}"),
+    SHORTEN(Kind.SHORTEN, "POST /shorten"),
+    RANKING(Kind.RANKING, "GET /ranking"),
+    STATS_CODE(Kind.STATS, "GET /stats/{code}"),
+    STATS_CODE_SUMMARY(Kind.STATS, "GET /stats/{code}/summary"),
+    STATS_SUMMARY(Kind.STATS, "GET /stats/summary");
+
+    /**
+     * Grupo do parâmetro {@code mix}; o peso de STATS é dividido entre as três rotas.
+     */
+    enum Kind { REDIRECT, SHORTEN, RANKING, STATS }
+
+    final Kind kind;
+    final String route;
+
+    Endpoint(Kind kind, String route) {
+        this.kind = kind;
+        this.route = route;
+    }
+}
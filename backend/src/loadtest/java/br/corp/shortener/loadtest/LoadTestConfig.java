@@ -0,0 +1,92 @@
+package br.corp.shortener.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parâmetros do teste de carga, no formato chave=valor (ex.: {@code links=1000000 duration=2m}).
+ */
+record LoadTestConfig(
+        String database,
+        String jdbcUrl,
+        String username,
+        String password,
+        boolean seed,
+        int links,
+        long accesses,
+        int days,
+        double zipfExponent,
+        Duration warmup,
+        Duration duration,
+        int concurrency,
+        Map<Endpoint.Kind, Integer> mix,
+        String output,
+        long randomSeed,
+        String appLogLevel
+) {
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) continue;
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Argumento deve ser chave=valor: " + arg);
+            }
+            values.put(arg.substring(0, eq).trim(), arg.substring(eq + 1).trim());
+        }
+        String database = values.getOrDefault("database", "h2").toLowerCase(Locale.ROOT);
+        if (!database.equals("h2") && !database.equals("postgres")) {
+            throw new IllegalArgumentException("database deve ser h2 ou postgres");
+        }
+        String defaultUrl = database.equals("h2")
+                ? "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1"
+                : env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/encurtadorURL?reWriteBatchedInserts=true");
+        return new LoadTestConfig(
+                database,
+                values.getOrDefault("jdbcUrl", defaultUrl),
+                values.getOrDefault("username", database.equals("h2") ? "sa" : env("SPRING_DATASOURCE_USERNAME", "postgres")),
+                values.getOrDefault("password", database.equals("h2") ? "" : env("SPRING_DATASOURCE_PASSWORD", "admin")),
+                Boolean.parseBoolean(values.getOrDefault("seed", "true")),
+                Integer.parseInt(values.getOrDefault("links", "100000")),
+                Long.parseLong(values.getOrDefault("accesses", "1000000")),
+                Integer.parseInt(values.getOrDefault("days", "30")),
+                Double.parseDouble(values.getOrDefault("zipf", "1.1")),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                parseMix(values.getOrDefault("mix", "redirect:80,shorten:5,ranking:10,stats:5")),
+                values.getOrDefault("output", "target/loadtest/result.json"),
+                Long.parseLong(values.getOrDefault("seedValue", "42")),
+                values.getOrDefault("appLogLevel", "WARN"));
+    }
+
+    // redirect:80,shorten:5,ranking:10,stats:5
+    static Map<Endpoint.Kind, Integer> parseMix(String spec) {
+        Map<Endpoint.Kind, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) continue;
+            String[] kv = part.split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("mix deve ser tipo:peso separados por vírgula: " + spec);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                mix.put(Endpoint.Kind.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("mix sem nenhum tipo de tráfego");
+        }
+        return mix;
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : value;
+    }
+}
@@ -0,0 +1,153 @@
+package br.corp.shortener.loadtest;
+
+import br.corp.shortener.UrlShortenerApplication;
+import br.corp.shortener.services.AccessLogWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Teste de carga de ponta a ponta: migra e popula o banco (H2 em memória ou PostgreSQL local),
+ * sobe a aplicação na mesma JVM em porta aleatória, gera o tráfego configurado e grava
+ * vazão e latências (p50/p90/p99/p99.9/máx.) por rota em JSON.
+ * <p>
+ * Argumentos chave=valor; ver {@link LoadTestConfig} e o README (seção "Teste de carga").
+ */
+public final class LoadTestMain {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestMain.class);
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        log.info("Load test config: {}", config);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(config.jdbcUrl(), config.username(), config.password());
+        // Mesmas locations da aplicação; {vendor} é resolvido pelo Spring Boot, aqui é explícito
+        String vendor = config.database().equals("h2") ? "h2" : "postgresql";
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration", "classpath:db/vendor/" + vendor)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        long seedMillis = 0;
+        if (config.seed()) {
+            long started = System.nanoTime();
+            new DatasetSeeder(new JdbcTemplate(dataSource), config).seed();
+            seedMillis = (System.nanoTime() - started) / 1_000_000;
+        }
+
+        // Sobe depois da carga: ranking, filtros de Bloom e caches partem da massa gerada.
+        // Argumentos de linha de comando têm precedência sobre application-test.yaml
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(UrlShortenerApplication.class)
+                .profiles(config.database().equals("h2") ? "test" : "default")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + config.jdbcUrl(),
+                        "--spring.datasource.username=" + config.username(),
+                        "--spring.datasource.password=" + config.password(),
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.br.corp.shortener=" + config.appLogLevel(),
+                        "--logging.level.org.hibernate.SQL=WARN");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            log.info("Application started on port {}; warmup={}, duration={}, concurrency={}",
+                    port, config.warmup(), config.duration(), config.concurrency());
+
+            TrafficDriver.Result result = new TrafficDriver(config, "http://localhost:" + port).run();
+            long dropped = context.getBean(AccessLogWriter.class).droppedCount();
+            Map<String, Object> report = report(config, seedMillis, result, dropped);
+
+            File out = new File(config.output());
+            if (out.getParentFile() != null) out.getParentFile().mkdirs();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(out, report);
+            printSummary(result);
+            log.info("Load test report written to {}", out.getAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Map<String, Object> report(LoadTestConfig config, long seedMillis, TrafficDriver.Result result, long dropped) {
+        double seconds = result.elapsedNanos() / 1e9;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long total = 0;
+        long totalErrors = 0;
+        for (Map.Entry<Endpoint, Histogram> e : result.histograms().entrySet()) {
+            Histogram h = e.getValue();
+            if (h.getTotalCount() == 0) continue;
+            long errors = result.errors().get(e.getKey());
+            total += h.getTotalCount();
+            totalErrors += errors;
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50", millis(h.getValueAtPercentile(50)));
+            latency.put("p90", millis(h.getValueAtPercentile(90)));
+            latency.put("p99", millis(h.getValueAtPercentile(99)));
+            latency.put("p999", millis(h.getValueAtPercentile(99.9)));
+            latency.put("max", millis(h.getMaxValue()));
+            latency.put("mean", Math.round(h.getMean()) / 1000.0);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", h.getTotalCount());
+            stats.put("errors", errors);
+            stats.put("throughputPerSecond", Math.round(h.getTotalCount() / seconds * 10) / 10.0);
+            stats.put("latencyMs", latency);
+            endpoints.put(e.getKey().route, stats);
+        }
+        Map<String, Object> dataset = new LinkedHashMap<>();
+        dataset.put("seeded", config.seed());
+        dataset.put("links", config.links());
+        dataset.put("accesses", config.accesses());
+        dataset.put("days", config.days());
+        dataset.put("zipfExponent", config.zipfExponent());
+        dataset.put("seedMillis", seedMillis);
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("database", config.database());
+        run.put("concurrency", config.concurrency());
+        run.put("warmupSeconds", config.warmup().toSeconds());
+        run.put("durationSeconds", Math.round(seconds * 10) / 10.0);
+        run.put("mix", config.mix());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("dataset", dataset);
+        report.put("run", run);
+        report.put("totalRequests", total);
+        report.put("totalErrors", totalErrors);
+        report.put("throughputPerSecond", Math.round(total / seconds * 10) / 10.0);
+        report.put("droppedAccessEvents", dropped);
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private static void printSummary(TrafficDriver.Result result) {
+        double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf("%n%-28s %10s %8s %10s %9s %9s %9s %9s%n",
+                "route", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        result.histograms().forEach((endpoint, h) -> {
+            if (h.getTotalCount() == 0) return;
+            System.out.printf("%-28s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.route, h.getTotalCount(), result.errors().get(endpoint), h.getTotalCount() / seconds,
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                    millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+        });
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
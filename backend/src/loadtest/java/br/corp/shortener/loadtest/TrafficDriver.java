@@ -0,0 +1,157 @@
+package br.corp.shortener.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gera o tráfego em malha fechada: {@code concurrency} threads virtuais, cada uma enviando a
+ * próxima requisição assim que a anterior responde. Rota sorteada pelos pesos de {@code mix};
+ * códigos sorteados pela mesma distribuição Zipf da massa. Latências em microssegundos num
+ * {@link Recorder} (HdrHistogram) por rota; só o período após o aquecimento é registrado.
+ */
+final class TrafficDriver {
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final HttpClient client;
+    private final ZipfGenerator zipf;
+    private final Endpoint[] wheel;
+    private final Map<Endpoint, Recorder> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private final AtomicLong shortenSequence = new AtomicLong();
+    private volatile boolean measuring;
+    private volatile boolean running;
+
+    TrafficDriver(LoadTestConfig config, String baseUrl) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        // HTTP/1.1 explícito: o padrão HTTP/2 tenta upgrade h2c em toda conexão nova
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.zipf = new ZipfGenerator(config.links(), config.zipfExponent());
+        this.wheel = buildWheel(config.mix());
+        for (Endpoint e : Endpoint.values()) {
+            latencies.put(e, new Recorder(3));
+            errors.put(e, new LongAdder());
+        }
+    }
+
+    /**
+     * Roda aquecimento + medição e retorna os histogramas do período medido.
+     */
+    Result run() throws InterruptedException {
+        running = true;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.concurrency(); i++) {
+                long seed = config.randomSeed() * 31 + i;
+                executor.submit(() -> loop(new SplittableRandom(seed)));
+            }
+            Thread.sleep(config.warmup().toMillis());
+            for (Recorder r : latencies.values()) r.reset();
+            for (LongAdder a : errors.values()) a.reset();
+            measuring = true;
+            long started = System.nanoTime();
+            Thread.sleep(config.duration().toMillis());
+            measuring = false;
+            long elapsedNanos = System.nanoTime() - started;
+            Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+            latencies.forEach((e, r) -> histograms.put(e, r.getIntervalHistogram()));
+            Map<Endpoint, Long> errorCounts = new EnumMap<>(Endpoint.class);
+            errors.forEach((e, a) -> errorCounts.put(e, a.sum()));
+            running = false;
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+            return new Result(elapsedNanos, histograms, errorCounts);
+        }
+    }
+
+    private void loop(SplittableRandom random) {
+        while (running) {
+            Endpoint endpoint = wheel[random.nextInt(wheel.length)];
+            HttpRequest request = request(endpoint, random);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                ok = expected(endpoint, response.statusCode());
+            } catch (Exception e) {
+                ok = false;
+            }
+            long micros = (System.nanoTime() - start) / 1_000;
+            if (measuring) {
+                latencies.get(endpoint).recordValue(Math.max(1, micros));
+                if (!ok) errors.get(endpoint).increment();
+            }
+        }
+    }
+
+    private HttpRequest request(Endpoint endpoint, SplittableRandom random) {
+        String code = DatasetSeeder.codeForRank(zipf.sample(random));
+        return switch (endpoint) {
+            case REDIRECT -> get("/" + code);
+            case RANKING -> get("/ranking");
+            case STATS_CODE -> get("/stats/" + code);
+            case STATS_CODE_SUMMARY -> get("/stats/" + code + "/summary");
+            case STATS_SUMMARY -> get("/stats/summary");
+            case SHORTEN -> HttpRequest.newBuilder(URI.create(baseUrl + "/shorten"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"url\":\"https://new.example.com/" + shortenSequence.incrementAndGet() + "\"}"))
+                    .build();
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static boolean expected(Endpoint endpoint, int status) {
+        return switch (endpoint) {
+            case REDIRECT -> status == 302;
+            case SHORTEN -> status == 201;
+            default -> status == 200;
+        };
+    }
+
+    // Roleta proporcional aos pesos; o peso de cada tipo é dividido igualmente entre suas rotas
+    private static Endpoint[] buildWheel(Map<Endpoint.Kind, Integer> mix) {
+        int scale = 6; // divisível pelo número de rotas de qualquer tipo (1 ou 3)
+        List<Endpoint> slots = new ArrayList<>();
+        mix.forEach((kind, weight) -> {
+            List<Endpoint> routes = new ArrayList<>();
+            for (Endpoint e : Endpoint.values()) {
+                if (e.kind == kind) routes.add(e);
+            }
+            int perRoute = weight * scale / routes.size();
+            for (Endpoint e : routes) {
+                for (int i = 0; i < perRoute; i++) {
+                    slots.add(e);
+                }
+            }
+        });
+        return slots.toArray(Endpoint[]::new);
+    }
+
+    record Result(long elapsedNanos, Map<Endpoint, Histogram> histograms, Map<Endpoint, Long> errors) {}
+}
@@ -0,0 +1,73 @@
+package br.corp.shortener.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Amostragem Zipf em [1, n] por rejeição-inversão (Hörmann e Derflinger): custo O(1) por
+ * amostra e sem tabela de n posições, o que permite milhões de links. O rank 1 é o mais
+ * frequente; a probabilidade do rank k é proporcional a 1 / k^expoente.
+ */
+final class ZipfGenerator {
+
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    ZipfGenerator(int n, double exponent) {
+        if (n < 1) throw new IllegalArgumentException("n deve ser >= 1");
+        if (exponent <= 0) throw new IllegalArgumentException("expoente deve ser > 0");
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1d;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2d - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Rank em [1, n].
+     */
+    int sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1d - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1d - exponent);
+        if (t < -1d) {
+            t = -1d; // erro numérico perto do limite
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, estável perto de zero
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1d / 3 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, estável perto de zero
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
@@ -1,26 +1,50 @@
 package br.corp.shortener.controllers;
 
+import br.corp.shortener.dto.BatchShortenItemResponse;
+import br.corp.shortener.dto.BatchShortenRequest;
+import br.corp.shortener.dto.BatchShortenResponse;
 import br.corp.shortener.dto.ErrorResponse;
+import br.corp.shortener.dto.LinkImportResponse;
 import br.corp.shortener.dto.ShortenRequest;
 import br.corp.shortener.dto.ShortenResponse;
 import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.exceptions.InvalidImportFileException;
+import br.corp.shortener.jfr.RedirectEvent;
+import br.corp.shortener.services.BatchItemResult;
+import br.corp.shortener.services.LinkImporter;
+import br.corp.shortener.services.RankingStream;
+import br.corp.shortener.services.ResponseVersions;
+import br.corp.shortener.services.StatsExporter;
 import br.corp.shortener.services.UrlShortenerService;
 import br.corp.shortener.dto.ValidationErrorResponse;
 import br.corp.shortener.dto.RankingItem;
 import jakarta.validation.Valid;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,11 +54,18 @@ import org.slf4j.LoggerFactory;
 public class LinkController {
 
     private final UrlShortenerService service;
+    private final LinkImporter importer;
+    private final RankingStream rankingStream;
+    private final ResponseVersions versions;
 
     private static final Logger log = LoggerFactory.getLogger(LinkController.class);
 
-    public LinkController(UrlShortenerService service) {
+    public LinkController(UrlShortenerService service, LinkImporter importer, RankingStream rankingStream,
+                          ResponseVersions versions) {
         this.service = service;
+        this.importer = importer;
+        this.rankingStream = rankingStream;
+        this.versions = versions;
     }
 
     @PostMapping("/shorten")
@@ -62,9 +93,101 @@ public class LinkController {
     public ResponseEntity<ShortenResponse> shorten(@Valid @RequestBody ShortenRequest request) {
         log.info("Shorten endpoint called: url={}, customCodeProvided={}", request.url(), request.code() != null);
         ShortUrl shortUrl = service.shorten(request.url(), request.code());
+        ShortenResponse body = toResponse(shortUrl);
+        log.info("Shorten created: code={}, location=/{}", shortUrl.getCode(), shortUrl.getCode());
+        return ResponseEntity.created(URI.create("/" + shortUrl.getCode())).body(body);
+    }
+
+    @PostMapping("/shorten/batch")
+    @Operation(
+            summary = "Encurtar URLs em lote",
+            description = "Cria até 1000 URLs encurtadas em uma requisição, com resultado por item (201 criado, 200 já existente, 400 inválido, 409 código em uso)",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BatchShortenRequest.class),
+                            examples = {
+                                    @ExampleObject(name = "Lote", value = "{\"items\":[{\"url\":\"https://www.google.com/\"},{\"url\":\"https://www.example.com/\", \"code\":\"ABCDE\"}]}")
+                            }
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Processado (ver status de cada item)", content = @Content(schema = @Schema(implementation = BatchShortenResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Lote vazio ou acima do limite", content = @Content(schema = @Schema(implementation = ValidationErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Erro interno", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<BatchShortenResponse> shortenBatch(@Valid @RequestBody BatchShortenRequest request) {
+        log.info("Batch shorten endpoint called: items={}", request.items().size());
+        List<BatchItemResult> results = service.shortenBatch(request.items());
+        List<BatchShortenItemResponse> items = new ArrayList<>(results.size());
+        int created = 0, existing = 0, failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            BatchItemResult r = results.get(i);
+            switch (r.status()) {
+                case CREATED -> {
+                    created++;
+                    items.add(new BatchShortenItemResponse(i, HttpStatus.CREATED.value(), toResponse(r.shortUrl()), null));
+                }
+                case EXISTING -> {
+                    existing++;
+                    items.add(new BatchShortenItemResponse(i, HttpStatus.OK.value(), toResponse(r.shortUrl()), null));
+                }
+                default -> {
+                    failed++;
+                    items.add(new BatchShortenItemResponse(i, statusOf(r.status()).value(), null, new ErrorResponse(r.error(), r.message())));
+                }
+            }
+        }
+        log.info("Batch shorten done: created={}, existing={}, failed={}", created, existing, failed);
+        return ResponseEntity.ok(new BatchShortenResponse(created, existing, failed, items));
+    }
+
+    @PostMapping(value = "/shorten/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Importar links de arquivo",
+            description = "Importa um arquivo NDJSON ou CSV (opcionalmente gzip) em streaming, gravando em blocos; retorna totais e erros por linha")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Importado (ver totais e erros por linha)", content = @Content(schema = @Schema(implementation = LinkImportResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Arquivo ou formato inválido", content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "413", description = "Arquivo acima do limite de upload", content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "500", description = "Erro interno", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<LinkImportResponse> importLinks(@RequestPart("file") MultipartFile file,
+                                                          @Parameter(description = "ndjson ou csv; se omitido, deduzido da extensão do arquivo")
+                                                          @RequestParam(value = "format", required = false) String format) {
+        StatsExporter.Format parsed = format != null ? StatsExporter.Format.parse(format) : formatOf(file.getOriginalFilename());
+        log.info("Link import requested: file={}, size={}, format={}", file.getOriginalFilename(), file.getSize(), parsed);
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(importer.importLinks(in, parsed));
+        } catch (IOException e) {
+            // gzip corrompido ou falha de leitura do upload
+            log.warn("Link import failed reading file {}: {}", file.getOriginalFilename(), e.getMessage());
+            throw new InvalidImportFileException("Não foi possível ler o arquivo: " + e.getMessage());
+        }
+    }
+
+    // stats.csv / stats.csv.gz -> CSV; demais -> NDJSON
+    private static StatsExporter.Format formatOf(String filename) {
+        String name = filename != null ? filename.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        return name.endsWith(".csv") ? StatsExporter.Format.CSV : StatsExporter.Format.NDJSON;
+    }
+
+    private static HttpStatus statusOf(BatchItemResult.Status status) {
+        return switch (status) {
+            case CREATED -> HttpStatus.CREATED;
+            case EXISTING -> HttpStatus.OK;
+            case INVALID -> HttpStatus.BAD_REQUEST;
+            case CONFLICT -> HttpStatus.CONFLICT;
+            case FAILED -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+    }
+
+    private static ShortenResponse toResponse(ShortUrl shortUrl) {
         String fullShortUrl;
         try {
-            fullShortUrl = org.springframework.web.servlet.support.ServletUriComponentsBuilder
+            fullShortUrl = ServletUriComponentsBuilder
                     .fromCurrentRequestUri()
                     .replacePath("/" + shortUrl.getCode())
                     .build()
@@ -73,20 +196,77 @@ public class LinkController {
             // Sem contexto de requisição (ex.: testes unitários): usa caminho relativo
             fullShortUrl = "/" + shortUrl.getCode();
         }
-        ShortenResponse body = new ShortenResponse(shortUrl.getId(), shortUrl.getOriginalUrl(), shortUrl.getCode(), shortUrl.getCreatedAt(), fullShortUrl);
-        log.info("Shorten created: code={}, location=/{}", shortUrl.getCode(), shortUrl.getCode());
-        return ResponseEntity.created(URI.create("/" + shortUrl.getCode())).body(body);
+        return new ShortenResponse(shortUrl.getId(), shortUrl.getOriginalUrl(), shortUrl.getCode(), shortUrl.getCreatedAt(), fullShortUrl);
     }
 
     @GetMapping("/ranking")
-    @Operation(summary = "Ranking de códigos mais acessados", description = "Lista as URLs mais acessadas")
+    @Operation(summary = "Ranking de códigos mais acessados",
+            description = "Lista as URLs mais acessadas. Aceita If-None-Match: com o ETag da versão atual responde 304 sem corpo")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = RankingItem.class))),
+            @ApiResponse(responseCode = "304", description = "Ranking não mudou desde o ETag informado"),
             @ApiResponse(responseCode = "500", description = "Erro interno", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public List<RankingItem> ranking() {
+    public ResponseEntity<List<RankingItem>> ranking(WebRequest request) {
+        // ETag lido antes do ranking: o corpo é no mínimo tão novo quanto a versão anunciada
+        String etag = versions.rankingETag();
+        if (request.checkNotModified(etag)) {
+            log.debug("Ranking not modified: etag={}", etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(versions.rankingCacheControl()).build();
+        }
         log.info("Ranking endpoint called");
-        return service.ranking();
+        return ResponseEntity.ok().eTag(etag).cacheControl(versions.rankingCacheControl()).body(service.ranking());
+    }
+
+    @GetMapping(value = "/ranking/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Ranking em tempo real (SSE)",
+            description = "Evento 'snapshot' com o ranking inteiro na conexão e eventos 'delta' com as mudanças, agrupadas por intervalo (ranking-stream.tick-ms)")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Fluxo text/event-stream"),
+            @ApiResponse(responseCode = "503", description = "Limite de conexões atingido; tente novamente após Retry-After")
+    })
+    public ResponseEntity<SseEmitter> rankingStream() {
+        SseEmitter emitter = rankingStream.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+        log.info("Ranking stream subscribed: subscribers={}", rankingStream.subscriberCount());
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+
+    @GetMapping("/ranking/trending")
+    @Operation(summary = "Ranking em alta", description = "Códigos mais acessados na janela deslizante informada (ex.: 5m, 1h, 1d), calculado em memória")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = RankingItem.class))),
+            @ApiResponse(responseCode = "400", description = "Janela ou limite inválido", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> trending(@Parameter(description = "Janela configurada em trending.windows", example = "1h")
+                                      @RequestParam(value = "window", defaultValue = "1h") String window,
+                                      @Parameter(description = "Quantidade de itens (1 a 100)", example = "10")
+                                      @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        log.info("Trending ranking endpoint called: window={}, limit={}", window, limit);
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Limite inválido", "limit deve estar entre 1 e 100"));
+        }
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+            return ResponseEntity.ok(service.trending(duration, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid trending window: {}", window);
+            String available = service.trendingWindows().stream()
+                    .map(LinkController::formatWindow)
+                    .collect(Collectors.joining(", "));
+            return ResponseEntity.badRequest().body(new ErrorResponse("Janela inválida", "Janelas disponíveis: " + available));
+        }
+    }
+
+    // PT5M -> 5m, PT1H -> 1h, P1D -> 1d (mesmo formato aceito no parâmetro)
+    private static String formatWindow(Duration d) {
+        if (d.toDaysPart() > 0 && d.equals(Duration.ofDays(d.toDays()))) return d.toDays() + "d";
+        if (d.toMinutesPart() == 0 && d.toSecondsPart() == 0) return d.toHours() + "h";
+        if (d.toSecondsPart() == 0) return d.toMinutes() + "m";
+        return d.toSeconds() + "s";
     }
 
     @GetMapping("/{code:[A-Za-z0-9]{5}}")
@@ -99,26 +279,40 @@ public class LinkController {
     public ResponseEntity<?> redirect(@PathVariable("code") String code,
                                       @RequestHeader(value = "User-Agent", required = false) String ua,
                                       @RequestHeader(value = "Referer", required = false) String referer) {
+        // Evento JFR do redirecionamento inteiro; a camada da busca vem no CodeLookup aninhado
+        RedirectEvent event = new RedirectEvent();
+        event.begin();
+        HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
         try {
             log.info("Redirect requested: code={}", code);
             ShortUrl su = service.getByCode(code);
             if (su == null) {
                 log.warn("Redirect failed: code not found={}", code);
+                status = HttpStatus.NOT_FOUND;
                 ErrorResponse errorResponse = new ErrorResponse("URL não encontrada", "O código informado não existe");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+                return ResponseEntity.status(status).body(errorResponse);
             }
 
             service.registerAccess(su, ua, referer);
             log.info("Redirecting code={} to {}", code, su.getOriginalUrl());
 
             // Usa API segura para definir Location evitando cabeçalhos manuais
-            return ResponseEntity.status(HttpStatus.FOUND)
+            status = HttpStatus.FOUND;
+            return ResponseEntity.status(status)
                     .location(URI.create(su.getOriginalUrl()))
                     .build();
         } catch (Exception e) {
             log.error("Redirect error for code={}: {}", code, e.getMessage(), e);
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
             ErrorResponse errorResponse = new ErrorResponse("Erro interno", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            return ResponseEntity.status(status).body(errorResponse);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.code = code;
+                event.status = status.value();
+                event.commit();
+            }
         }
     }
 }
\ No newline at end of file
@@ -1,17 +1,27 @@
 package br.corp.shortener.controllers;
 
 import br.corp.shortener.dto.ErrorResponse;
+import br.corp.shortener.dto.StatsCursor;
+import br.corp.shortener.dto.StatsCursorPage;
 import br.corp.shortener.dto.StatsResponse;
 import br.corp.shortener.dto.StatsSummaryResponse;
 import br.corp.shortener.dto.StatsCodeSummaryResponse;
+import br.corp.shortener.services.ResponseVersions;
+import br.corp.shortener.services.StatsExporter;
 import br.corp.shortener.services.UrlShortenerService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -21,16 +31,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 @RestController
 @Tag(name = "Estatísticas", description = "Endpoints para consulta de estatísticas")
 public class StatsController {
 
     private final UrlShortenerService service;
+    private final StatsExporter exporter;
+    private final ResponseVersions versions;
     private static final Logger log = LoggerFactory.getLogger(StatsController.class);
 
-    public StatsController(UrlShortenerService service) {
+    public StatsController(UrlShortenerService service, StatsExporter exporter, ResponseVersions versions) {
         this.service = service;
+        this.exporter = exporter;
+        this.versions = versions;
     }
 
     @GetMapping("/stats/{code:[A-Za-z0-9]{5}}")
@@ -53,37 +68,101 @@ public class StatsController {
     }
 
     @GetMapping("/stats")
-    @Operation(summary = "Listar estatísticas paginadas", description = "Retorna todas as estatísticas em uma lista paginada")
+    @Operation(summary = "Listar estatísticas paginadas",
+            description = "Retorna todas as estatísticas em uma lista paginada. Com 'after' usa paginação por cursor "
+                    + "(custo constante em qualquer profundidade; 'after' vazio retorna a primeira página). "
+                    + "includeTotal=false dispensa a contagem total de links.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = StatsResponse.class))),
+            @ApiResponse(responseCode = "200", description = "OK (Page no modo offset, StatsCursorPage no modo cursor)",
+                    content = @Content(schema = @Schema(implementation = StatsCursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor inválido", content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Erro interno", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Page<StatsResponse>> statsPage(Pageable pageable) {
-        log.info("Stats page requested: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+    public ResponseEntity<?> statsPage(Pageable pageable,
+                                       @Parameter(description = "Cursor <createdAt>,<id> retornado em nextCursor")
+                                       @RequestParam(value = "after", required = false) String after,
+                                       @Parameter(description = "Inclui o total de links (COUNT da tabela)")
+                                       @RequestParam(value = "includeTotal", defaultValue = "true") boolean includeTotal) {
+        if (after != null) {
+            log.info("Stats cursor page requested: after={}, size={}, includeTotal={}", after, pageable.getPageSize(), includeTotal);
+            StatsCursor cursor;
+            try {
+                cursor = after.isBlank() ? null : StatsCursor.parse(after);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid stats cursor: {}", after);
+                return ResponseEntity.badRequest().body(new ErrorResponse("Cursor inválido", e.getMessage()));
+            }
+            return ResponseEntity.ok(service.listStatsAfter(cursor, pageable.getPageSize(), includeTotal));
+        }
+        log.info("Stats page requested: page={}, size={}, includeTotal={}", pageable.getPageNumber(), pageable.getPageSize(), includeTotal);
+        if (!includeTotal) {
+            Slice<StatsResponse> slice = service.listStatsSlice(pageable);
+            return ResponseEntity.ok(slice);
+        }
         Page<StatsResponse> page = service.listStats(pageable);
         return ResponseEntity.ok(page);
     }
 
+    @GetMapping("/stats/export")
+    @Operation(summary = "Exportar estatísticas de todos os links",
+            description = "Transmite todas as estatísticas em NDJSON (padrão) ou CSV a partir de um cursor no banco, sem paginação")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK (application/x-ndjson ou text/csv)"),
+            @ApiResponse(responseCode = "400", description = "Formato inválido", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> export(@Parameter(description = "ndjson ou csv")
+                                                        @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        // Formato inválido vira 400 no GlobalExceptionHandler; o corpo precisa ser tipado para o MVC transmitir
+        StatsExporter.Format parsed = StatsExporter.Format.parse(format);
+        log.info("Stats export requested: format={}", parsed);
+        StreamingResponseBody body = out -> exporter.export(parsed, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(parsed.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"stats." + parsed.extension() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/stats/summary")
-    @Operation(summary = "Resumo de estatísticas", description = "Total de acessos, últimos 7 dias e acessos por dia")
+    @Operation(summary = "Resumo de estatísticas",
+            description = "Total de acessos, últimos 7 dias e acessos por dia. Aceita If-None-Match (304 sem montar o resumo)")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = StatsSummaryResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Resumo não mudou desde o ETag informado"),
             @ApiResponse(responseCode = "500", description = "Erro interno", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<StatsSummaryResponse> summary() {
+    public ResponseEntity<StatsSummaryResponse> summary(WebRequest request) {
+        String etag = versions.statsETag();
+        if (request.checkNotModified(etag)) {
+            log.debug("Stats summary not modified: etag={}", etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(versions.statsCacheControl()).build();
+        }
         log.info("Stats summary requested");
         StatsSummaryResponse resp = service.getStatsSummary();
-        return ResponseEntity.ok(resp);
+        // O ETag enviado descreve o corpo calculado, não a marca d'água lida antes
+        return ResponseEntity.ok().eTag(versions.statsETag(resp.totalHits())).cacheControl(versions.statsCacheControl()).body(resp);
     }
 
     @GetMapping("/stats/{code:[A-Za-z0-9]{5}}/summary")
     @Operation(summary = "Resumo de estatísticas por código", description = "Total de acessos, últimos 7 dias e acessos por dia para um código")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = StatsCodeSummaryResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Resumo não mudou desde o ETag informado"),
             @ApiResponse(responseCode = "404", description = "URL não encontrada", content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "Erro interno", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<?> summaryByCode(@PathVariable("code") String code) {
+    public ResponseEntity<?> summaryByCode(@PathVariable("code") String code, WebRequest request) {
+        // O ETag depende do total do link: código inexistente responde 404, nunca 304
+        Long totalHits = service.getTotalHits(code);
+        if (totalHits == null) {
+            log.warn("Stats not found for code={}", code);
+            ErrorResponse errorResponse = new ErrorResponse("URL não encontrada", "O código informado não existe");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        String etag = versions.statsCodeETag(code, totalHits);
+        if (request.checkNotModified(etag)) {
+            log.debug("Stats code summary not modified: code={}, etag={}", code, etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(versions.statsCacheControl()).build();
+        }
         log.info("Stats code summary requested for code={}", code);
         StatsCodeSummaryResponse resp = service.getStatsSummaryByCode(code);
         if (resp == null) {
@@ -91,6 +170,6 @@ public class StatsController {
             ErrorResponse errorResponse = new ErrorResponse("URL não encontrada", "O código informado não existe");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         }
-        return ResponseEntity.ok(resp);
+        return ResponseEntity.ok().eTag(versions.statsCodeETag(code, resp.totalHits())).cacheControl(versions.statsCacheControl()).body(resp);
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record BatchShortenItemResponse(
+        @Schema(description = "Posição do item na requisição", example = "0") int index,
+        @Schema(description = "Status do item: 201 criado, 200 já existente, 400 inválido, 409 código em uso", example = "201") int status,
+        @Schema(description = "Link encurtado (status 200/201)") ShortenResponse result,
+        @Schema(description = "Erro do item (status 400/409)") ErrorResponse error
+) {}
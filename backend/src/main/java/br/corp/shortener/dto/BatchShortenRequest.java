@@ -0,0 +1,14 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchShortenRequest(
+        // Itens validados individualmente: um item inválido não rejeita o lote inteiro
+        @Schema(description = "URLs a encurtar, com código customizado opcional (máx. 1000 por requisição)")
+        @NotEmpty(message = "items é obrigatório")
+        @Size(max = 1000, message = "items deve ter no máximo 1000 elementos") List<ShortenRequest> items
+) {}
@@ -0,0 +1,12 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record BatchShortenResponse(
+        @Schema(description = "Itens criados", example = "48") int created,
+        @Schema(description = "Itens que já existiam (idempotência)", example = "2") int existing,
+        @Schema(description = "Itens rejeitados", example = "0") int failed,
+        @Schema(description = "Resultado por item, na ordem da requisição") List<BatchShortenItemResponse> items
+) {}
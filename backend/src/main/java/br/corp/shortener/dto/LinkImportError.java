@@ -0,0 +1,9 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record LinkImportError(
+        @Schema(description = "Linha do arquivo (a partir de 1)", example = "42") long line,
+        @Schema(description = "Tipo do erro", example = "Erro de validação") String error,
+        @Schema(description = "Mensagem descritiva do erro", example = "url deve usar http ou https") String message
+) {}
@@ -0,0 +1,15 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+public record LinkImportResponse(
+        @Schema(description = "Registros lidos (sem cabeçalho e linhas em branco)", example = "100000") long records,
+        @Schema(description = "Links criados", example = "99000") long created,
+        @Schema(description = "Links que já existiam (idempotência)", example = "990") long existing,
+        @Schema(description = "Registros rejeitados", example = "10") long failed,
+        @Schema(description = "Duração da importação em milissegundos", example = "5300") long elapsedMs,
+        @Schema(description = "Erros por linha (limitados a link-import.max-reported-errors)") List<LinkImportError> errors,
+        @Schema(description = "true se houve mais erros do que os listados") boolean errorsTruncated
+) {}
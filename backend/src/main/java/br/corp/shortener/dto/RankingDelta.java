@@ -0,0 +1,10 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+public record RankingDelta(
+        @Schema(description = "Versão do ranking que este evento produz", example = "1234") long version,
+        @Schema(description = "Códigos que entraram ou mudaram de posição/hits (no evento 'snapshot', o ranking inteiro)") List<RankingPosition> changed,
+        @Schema(description = "Códigos que saíram do ranking") List<String> removed
+) {}
@@ -0,0 +1,29 @@
+package br.corp.shortener.dto;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Posição da paginação por cursor em GET /stats: último (createdAt, id) da página anterior.
+ * Formato textual: {@code <createdAt ISO-8601>,<id>}, ex.: {@code 2024-05-01T12:00:00Z,42}.
+ */
+public record StatsCursor(Instant createdAt, long id) {
+
+    public static StatsCursor parse(String value) {
+        if (value == null) throw new IllegalArgumentException("Cursor ausente");
+        int comma = value.lastIndexOf(',');
+        if (comma <= 0 || comma == value.length() - 1) {
+            throw new IllegalArgumentException("Cursor deve ter o formato <createdAt>,<id>");
+        }
+        try {
+            return new StatsCursor(Instant.parse(value.substring(0, comma).trim()),
+                    Long.parseLong(value.substring(comma + 1).trim()));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor deve ter o formato <createdAt>,<id>");
+        }
+    }
+
+    public String encode() {
+        return createdAt + "," + id;
+    }
+}
@@ -0,0 +1,12 @@
+package br.corp.shortener.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+public record StatsCursorPage(
+        @Schema(description = "Estatísticas da página, da mais recente para a mais antiga") List<StatsResponse> content,
+        @Schema(description = "Tamanho solicitado da página", example = "20") int size,
+        @Schema(description = "Há mais itens após esta página") boolean hasNext,
+        @Schema(description = "Valor de 'after' para a próxima página (null na última)", example = "2024-05-01T12:00:00Z,42") String nextCursor,
+        @Schema(description = "Total de links (null quando includeTotal=false)") Long totalElements
+) {}
@@ -4,33 +4,38 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(
-    name = "short_urls",
-    uniqueConstraints = {
-        @UniqueConstraint(name = "uk_code_original", columnNames = {"code", "original_url"})
-    }
-)
+@Table(name = "short_urls")
 public class ShortUrl {
 
+    // Sequência pooled (incremento 50): permite JDBC batch de inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "short_urls_seq")
+    @SequenceGenerator(name = "short_urls_seq", sequenceName = "short_urls_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "original_url", nullable = false)
     private String originalUrl;
 
+    // Chave compacta (UrlHash) das buscas por URL; recalculada sempre que a URL muda
+    @Column(name = "original_url_hash", nullable = false)
+    private long originalUrlHash;
+
     @Column(nullable = false, unique = true, length = 5)
     private String code;
 
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
+    // Mantido por UPDATEs relativos em lote (HitCounter); nunca gravado pelo JPA
+    @Column(name = "hit_count", nullable = false, insertable = false, updatable = false)
+    private long hitCount;
+
     protected ShortUrl() {
         // Construtor padrão para JPA
     }
 
     public ShortUrl(String originalUrl, String code, Instant createdAt) {
-        this.originalUrl = originalUrl;
+        setOriginalUrl(originalUrl);
         this.code = code;
         this.createdAt = createdAt;
     }
@@ -49,6 +54,11 @@ public class ShortUrl {
 
     public void setOriginalUrl(String originalUrl) {
         this.originalUrl = originalUrl;
+        this.originalUrlHash = originalUrl != null ? UrlHash.of(originalUrl) : 0L;
+    }
+
+    public long getOriginalUrlHash() {
+        return originalUrlHash;
     }
 
     public String getCode() {
@@ -66,4 +76,8 @@ public class ShortUrl {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
-}
\ No newline at end of file
+
+    public long getHitCount() {
+        return hitCount;
+    }
+}
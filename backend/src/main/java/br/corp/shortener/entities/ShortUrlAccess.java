@@ -7,8 +7,10 @@ import java.time.Instant;
 @Table(name = "short_url_accesses")
 public class ShortUrlAccess {
 
+    // Sequência pooled (incremento 50): permite JDBC batch de inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "short_url_accesses_seq")
+    @SequenceGenerator(name = "short_url_accesses_seq", sequenceName = "short_url_accesses_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
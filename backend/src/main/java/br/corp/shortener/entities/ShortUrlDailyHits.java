@@ -0,0 +1,74 @@
+package br.corp.shortener.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Total de acessos de um link em um dia (UTC). Somente leitura via JPA:
+ * as linhas são incrementadas por upsert em lote (DailyHitsUpsertRepository).
+ */
+@Entity
+@Table(name = "short_url_daily_hits")
+@IdClass(ShortUrlDailyHits.Key.class)
+public class ShortUrlDailyHits {
+
+    @Id
+    @Column(name = "short_url_id", nullable = false)
+    private Long shortUrlId;
+
+    @Id
+    @Column(name = "access_date", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "hits", nullable = false)
+    private long hits;
+
+    protected ShortUrlDailyHits() {
+        // Construtor padrão para JPA
+    }
+
+    public ShortUrlDailyHits(Long shortUrlId, LocalDate day, long hits) {
+        this.shortUrlId = shortUrlId;
+        this.day = day;
+        this.hits = hits;
+    }
+
+    public Long getShortUrlId() {
+        return shortUrlId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public static class Key implements Serializable {
+        private Long shortUrlId;
+        private LocalDate day;
+
+        public Key() {
+        }
+
+        public Key(Long shortUrlId, LocalDate day) {
+            this.shortUrlId = shortUrlId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(shortUrlId, other.shortUrlId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shortUrlId, day);
+        }
+    }
+}
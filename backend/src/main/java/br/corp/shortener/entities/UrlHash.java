@@ -0,0 +1,36 @@
+package br.corp.shortener.entities;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hash de 64 bits da URL original normalizada, persistido em short_urls.original_url_hash.
+ * Chave compacta dos índices de idempotência; as buscas sempre conferem a URL completa,
+ * então colisões não afetam o resultado.
+ * <p>
+ * É também o hash dos filtros em memória (ScalableBloomFilter, CountMinSketch), para que exista
+ * uma única implementação.
+ * <p>
+ * O valor fica gravado no banco: mudar o algoritmo exige uma migração que recalcule a coluna.
+ */
+public final class UrlHash {
+
+    private UrlHash() {
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre os bytes UTF-8 seguido do finalizador do MurmurHash3.
+     */
+    public static long of(String url) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
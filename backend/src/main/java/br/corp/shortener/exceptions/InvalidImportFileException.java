@@ -0,0 +1,7 @@
+package br.corp.shortener.exceptions;
+
+public class InvalidImportFileException extends RuntimeException {
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
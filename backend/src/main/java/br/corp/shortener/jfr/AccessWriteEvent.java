@@ -0,0 +1,31 @@
+package br.corp.shortener.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Gravação de acessos no banco: um lote do write-behind ou o insert síncrono de
+ * {@code registerAccess}.
+ */
+@Name("br.corp.shortener.AccessWrite")
+@Label("Access Write")
+@Category({"URL Shortener", "Database"})
+@Description("Persistência de acessos (lote ou síncrona)")
+@StackTrace(false)
+@Threshold("1 ms")
+public class AccessWriteEvent extends jdk.jfr.Event {
+
+    @Label("Mode")
+    @Description("batch ou sync")
+    public String mode;
+
+    @Label("Accesses")
+    public int accesses;
+
+    @Label("Success")
+    public boolean success;
+}
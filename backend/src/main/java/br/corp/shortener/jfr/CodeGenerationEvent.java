@@ -0,0 +1,37 @@
+package br.corp.shortener.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Laço de geração de código de {@code shorten}: tentativas e motivos de descarte. Muitas
+ * tentativas indicam espaço de códigos saturado ou filtro de Bloom com falsos positivos altos.
+ */
+@Name("br.corp.shortener.CodeGeneration")
+@Label("Code Generation")
+@Category({"URL Shortener", "Shorten"})
+@Description("Geração de código único em POST /shorten")
+@StackTrace(false)
+public class CodeGenerationEvent extends jdk.jfr.Event {
+
+    @Label("Attempts")
+    public int attempts;
+
+    @Label("Cache Retries")
+    @Description("Códigos descartados por já estarem em cache")
+    public int cacheRetries;
+
+    @Label("Database Retries")
+    @Description("Códigos descartados por já existirem no banco")
+    public int databaseRetries;
+
+    @Label("Collisions")
+    @Description("Violações de unicidade no insert")
+    public int collisions;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,36 @@
+package br.corp.shortener.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Busca de um código por camada: Top-N, cache de ShortUrl, cache negativo ou banco (falta em
+ * todos os caches). Com o limiar padrão só entram buscas lentas, na prática as que foram ao banco.
+ */
+@Name("br.corp.shortener.CodeLookup")
+@Label("Code Lookup")
+@Category({"URL Shortener", "Cache"})
+@Description("Busca de código curto e a camada que a resolveu")
+@StackTrace(false)
+@Threshold("1 ms")
+public class CodeLookupEvent extends jdk.jfr.Event {
+
+    public static final String TOP_RANKING = "topRanking";
+    public static final String CACHE = "cache";
+    public static final String NEGATIVE = "negative";
+    public static final String DATABASE = "database";
+
+    @Label("Code")
+    public String code;
+
+    @Label("Tier")
+    @Description("topRanking, cache, negative ou database")
+    public String tier;
+
+    @Label("Found")
+    public boolean found;
+}
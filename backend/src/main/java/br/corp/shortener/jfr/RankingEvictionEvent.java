@@ -0,0 +1,32 @@
+package br.corp.shortener.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Troca de membro do Top-N: o menor membro sai e um código de fora entra pela estimativa do
+ * Count-Min Sketch. Trocas frequentes indicam disputa na borda do ranking.
+ */
+@Name("br.corp.shortener.RankingEviction")
+@Label("Ranking Eviction")
+@Category({"URL Shortener", "Ranking"})
+@Description("Membro do Top-N substituído por um código de fora")
+@StackTrace(false)
+public class RankingEvictionEvent extends jdk.jfr.Event {
+
+    @Label("Evicted Code")
+    public String evictedCode;
+
+    @Label("Evicted Hits")
+    public long evictedHits;
+
+    @Label("Admitted Code")
+    public String admittedCode;
+
+    @Label("Admitted Hits")
+    @Description("Estimativa do sketch no momento da entrada")
+    public long admittedHits;
+}
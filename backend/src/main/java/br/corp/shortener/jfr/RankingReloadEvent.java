@@ -0,0 +1,30 @@
+package br.corp.shortener.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recarga do Top-N a partir do banco (carga inicial, reconciliação ou recarga lazy), feita
+ * com o lock de membros do ranking: acessos que tentam entrar no Top-N esperam por ela.
+ */
+@Name("br.corp.shortener.RankingReload")
+@Label("Ranking Reload")
+@Category({"URL Shortener", "Ranking"})
+@Description("Recarga do Top-N do ranking a partir do banco")
+@StackTrace(false)
+public class RankingReloadEvent extends jdk.jfr.Event {
+
+    @Label("Links")
+    @Description("Linhas lidas do ranking completo")
+    public long links;
+
+    @Label("Members")
+    @Description("Membros do Top-N após a recarga")
+    public int members;
+
+    @Label("Success")
+    public boolean success;
+}
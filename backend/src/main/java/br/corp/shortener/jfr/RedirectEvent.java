@@ -0,0 +1,27 @@
+package br.corp.shortener.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * {@code GET /{code}} completo: busca do código e registro do acesso. A camada que resolveu a
+ * busca está no {@link CodeLookupEvent} aninhado (mesma thread, dentro deste intervalo).
+ */
+@Name("br.corp.shortener.Redirect")
+@Label("Redirect")
+@Category({"URL Shortener", "HTTP"})
+@Description("Redirecionamento de um código curto")
+@StackTrace(false)
+@Threshold("10 ms")
+public class RedirectEvent extends jdk.jfr.Event {
+
+    @Label("Code")
+    public String code;
+
+    @Label("HTTP Status")
+    public int status;
+}
@@ -0,0 +1,16 @@
+package br.corp.shortener.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Fragmento de repositório para inserção em lote.
+ * Persiste entidades novas com flush a cada lote JDBC, resultando em um
+ * round trip por lote (requer ids por sequência e hibernate.jdbc.batch_size).
+ * Após o flush, apenas as entidades do lote são desanexadas; as demais entidades
+ * gerenciadas pela transação do chamador continuam no contexto de persistência.
+ */
+public interface BatchInsertRepository<T> {
+
+    <S extends T> List<S> insertAll(Collection<S> entities);
+}
@@ -0,0 +1,48 @@
+package br.corp.shortener.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class BatchInsertRepositoryImpl<T> implements BatchInsertRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public <S extends T> List<S> insertAll(Collection<S> entities) {
+        List<S> inserted = new ArrayList<>(entities.size());
+        List<S> chunk = new ArrayList<>(Math.min(batchSize, entities.size()));
+        for (S entity : entities) {
+            entityManager.persist(entity);
+            inserted.add(entity);
+            chunk.add(entity);
+            if (chunk.size() >= batchSize) {
+                flushAndDetach(chunk);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flushAndDetach(chunk);
+        }
+        return inserted;
+    }
+
+    // Envia o lote e desanexa só as entidades dele, mantendo a memória constante sem descartar
+    // entidades carregadas (ou alterações pendentes) do chamador na mesma transação
+    private void flushAndDetach(List<? extends T> chunk) {
+        entityManager.flush();
+        for (T entity : chunk) {
+            entityManager.detach(entity);
+        }
+        chunk.clear();
+    }
+}
@@ -0,0 +1,9 @@
+package br.corp.shortener.repositories;
+
+/**
+ * Projeção enxuta de ShortUrl (código e total de acessos) para semear o sketch do ranking.
+ */
+public interface CodeHits {
+    String getCode();
+    long getHits();
+}
@@ -0,0 +1,17 @@
+package br.corp.shortener.repositories;
+
+import br.corp.shortener.entities.ShortUrlDailyHits;
+
+import java.util.Collection;
+
+/**
+ * Fragmento de repositório para incrementar o rollup diário em lote
+ * (um upsert por par link/dia, em um único round trip JDBC).
+ */
+public interface DailyHitsUpsertRepository {
+
+    /**
+     * Soma os hits de cada item à linha (short_url_id, day), criando-a se necessário.
+     */
+    void addHits(Collection<ShortUrlDailyHits> deltas);
+}
@@ -5,7 +5,7 @@ import br.corp.shortener.entities.ShortUrlAccess;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.time.Instant;
 
-public interface ShortUrlAccessRepository extends JpaRepository<ShortUrlAccess, Long> {
+public interface ShortUrlAccessRepository extends JpaRepository<ShortUrlAccess, Long>, BatchInsertRepository<ShortUrlAccess> {
     long countByShortUrl(ShortUrl shortUrl);
     long countByAccessedAtAfter(Instant cutoff);
     long countByAccessedAtBetween(Instant start, Instant end);
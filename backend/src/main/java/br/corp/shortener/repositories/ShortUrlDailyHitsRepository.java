@@ -0,0 +1,26 @@
+package br.corp.shortener.repositories;
+
+import br.corp.shortener.dto.DayHits;
+import br.corp.shortener.entities.ShortUrlDailyHits;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ShortUrlDailyHitsRepository extends JpaRepository<ShortUrlDailyHits, ShortUrlDailyHits.Key>, DailyHitsUpsertRepository {
+
+    @Query("SELECT COALESCE(SUM(d.hits), 0) FROM ShortUrlDailyHits d")
+    long sumAllHits();
+
+    // Soma global por dia a partir de uma data (range no índice por dia)
+    @Query("SELECT new br.corp.shortener.dto.DayHits(d.day, SUM(d.hits)) FROM ShortUrlDailyHits d " +
+           "WHERE d.day >= :from GROUP BY d.day ORDER BY d.day")
+    List<DayHits> sumHitsByDaySince(@Param("from") LocalDate from);
+
+    // Dias de um link a partir de uma data (range na chave primária)
+    @Query("SELECT new br.corp.shortener.dto.DayHits(d.day, d.hits) FROM ShortUrlDailyHits d " +
+           "WHERE d.shortUrlId = :shortUrlId AND d.day >= :from ORDER BY d.day")
+    List<DayHits> findDailyHitsSince(@Param("shortUrlId") Long shortUrlId, @Param("from") LocalDate from);
+}
@@ -0,0 +1,11 @@
+package br.corp.shortener.repositories;
+
+import java.time.Instant;
+
+/**
+ * Projeção enxuta de ShortUrl (código e data de criação) para varreduras em streaming.
+ */
+public interface ShortUrlKeys {
+    String getCode();
+    Instant getCreatedAt();
+}
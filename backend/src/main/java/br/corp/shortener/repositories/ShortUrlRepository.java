@@ -3,28 +3,109 @@ package br.corp.shortener.repositories;
 import br.corp.shortener.dto.RankingItem;
 import br.corp.shortener.dto.StatsResponse;
 import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.entities.UrlHash;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.QueryHint;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
-public interface ShortUrlRepository extends JpaRepository<ShortUrl, Long> {
+public interface ShortUrlRepository extends JpaRepository<ShortUrl, Long>, BatchInsertRepository<ShortUrl> {
 
     Optional<ShortUrl> findByCode(String code);
 
     boolean existsByCode(String code);
 
-    Optional<ShortUrl> findByCodeAndOriginalUrl(String code, String originalUrl);
+    // Buscas por URL passam pelo hash indexado (original_url_hash) e conferem a URL completa
+    default Optional<ShortUrl> findByCodeAndOriginalUrl(String code, String originalUrl) {
+        return findByCodeAndOriginalUrlHashAndOriginalUrl(code, UrlHash.of(originalUrl), originalUrl);
+    }
 
-    Optional<ShortUrl> findFirstByOriginalUrlOrderByCreatedAtDesc(String originalUrl);
+    default Optional<ShortUrl> findFirstByOriginalUrlOrderByCreatedAtDesc(String originalUrl) {
+        return findFirstByOriginalUrlHashAndOriginalUrlOrderByCreatedAtDesc(UrlHash.of(originalUrl), originalUrl);
+    }
 
-    @Query("SELECT new br.corp.shortener.dto.RankingItem(su.code, su.originalUrl, COUNT(a)) FROM ShortUrlAccess a JOIN a.shortUrl su GROUP BY su ORDER BY COUNT(a) DESC")
-    List<RankingItem> findRanking();
+    Optional<ShortUrl> findByCodeAndOriginalUrlHashAndOriginalUrl(String code, long originalUrlHash, String originalUrl);
 
-    @Query(value = "SELECT new br.corp.shortener.dto.StatsResponse(su.code, su.originalUrl, COUNT(a)) FROM ShortUrl su LEFT JOIN ShortUrlAccess a ON a.shortUrl = su GROUP BY su.id, su.code, su.originalUrl ORDER BY su.createdAt DESC", countQuery = "SELECT COUNT(su) FROM ShortUrl su")
+    Optional<ShortUrl> findFirstByOriginalUrlHashAndOriginalUrlOrderByCreatedAtDesc(long originalUrlHash, String originalUrl);
+
+    // Resolução em lote (POST /shorten/batch): uma consulta IN por índice
+    List<ShortUrl> findByCodeIn(Collection<String> codes);
+
+    /**
+     * Links cujas URLs estão em {@code originalUrls}: IN sobre os hashes, com a URL
+     * completa conferida em memória para descartar colisões.
+     */
+    default List<ShortUrl> findByOriginalUrlIn(Collection<String> originalUrls) {
+        Set<String> wanted = new HashSet<>(originalUrls);
+        Set<Long> hashes = new HashSet<>();
+        for (String url : wanted) hashes.add(UrlHash.of(url));
+        List<ShortUrl> found = findByOriginalUrlHashIn(hashes);
+        found.removeIf(su -> !wanted.contains(su.getOriginalUrl()));
+        return found;
+    }
+
+    List<ShortUrl> findByOriginalUrlHashIn(Collection<Long> originalUrlHashes);
+
+    @Query("SELECT su.code FROM ShortUrl su WHERE su.code IN :codes")
+    List<String> findExistingCodes(@Param("codes") Collection<String> codes);
+
+    // Reserva um bloco de números para SequenceCodeGenerator (início do bloco)
+    @Query(value = "SELECT nextval('short_code_seq')", nativeQuery = true)
+    long nextCodeBlock();
+
+    // Varreduras em streaming (exigem transação aberta); fetch size evita carregar a tabela inteira
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT su.code AS code, su.createdAt AS createdAt FROM ShortUrl su")
+    Stream<ShortUrlKeys> streamAllKeys();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT su.code AS code, su.createdAt AS createdAt FROM ShortUrl su WHERE su.createdAt >= :since")
+    Stream<ShortUrlKeys> streamKeysCreatedSince(@Param("since") Instant since);
+
+    // Contagens a partir de hit_count (sem varrer short_url_accesses)
+    @Query("SELECT su.hitCount FROM ShortUrl su WHERE su.id = :id")
+    Optional<Long> findHitCountById(@Param("id") Long id);
+
+    // Top-N pelo banco: ORDER BY + LIMIT (Pageable) em vez de ordenar todos os links em memória
+    @Query("SELECT new br.corp.shortener.dto.RankingItem(su.code, su.originalUrl, su.hitCount) FROM ShortUrl su WHERE su.hitCount > 0 ORDER BY su.hitCount DESC, su.code")
+    List<RankingItem> findTopRanking(Pageable pageable);
+
+    // Contagens de todos os links acessados, sem URL nem ordenação (semente do sketch do ranking);
+    // em streaming (exige transação aberta) para não materializar a tabela inteira
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT su.code AS code, su.hitCount AS hits FROM ShortUrl su WHERE su.hitCount > 0")
+    Stream<CodeHits> streamAllHitCounts();
+
+    @Query(value = "SELECT new br.corp.shortener.dto.StatsResponse(su.code, su.originalUrl, su.hitCount) FROM ShortUrl su ORDER BY su.createdAt DESC, su.id DESC", countQuery = "SELECT COUNT(su) FROM ShortUrl su")
     Page<StatsResponse> findAllStats(Pageable pageable);
+
+    // Exportação em streaming (exige transação aberta); projeção DTO não ocupa o contexto de persistência
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT new br.corp.shortener.dto.StatsResponse(su.code, su.originalUrl, su.hitCount) FROM ShortUrl su ORDER BY su.id")
+    Stream<StatsResponse> streamAllStats();
+
+    // Mesma consulta sem o COUNT da tabela inteira (includeTotal=false)
+    @Query("SELECT new br.corp.shortener.dto.StatsResponse(su.code, su.originalUrl, su.hitCount) FROM ShortUrl su ORDER BY su.createdAt DESC, su.id DESC")
+    Slice<StatsResponse> findStatsSlice(Pageable pageable);
+
+    // Paginação por cursor (seek) sobre idx_short_urls_created_at_id; o Pageable só limita o tamanho
+    @Query("SELECT su FROM ShortUrl su ORDER BY su.createdAt DESC, su.id DESC")
+    List<ShortUrl> findStatsFirstPage(Pageable limit);
+
+    // createdAt <= :createdAt é redundante, mas vira o limite da faixa no índice (created_at, id); o OR sozinho não vira
+    @Query("SELECT su FROM ShortUrl su WHERE su.createdAt <= :createdAt AND (su.createdAt < :createdAt OR (su.createdAt = :createdAt AND su.id < :id)) ORDER BY su.createdAt DESC, su.id DESC")
+    List<ShortUrl> findStatsPageAfter(@Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable limit);
 }
\ No newline at end of file
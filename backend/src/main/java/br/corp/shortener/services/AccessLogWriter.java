@@ -0,0 +1,352 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.ShortUrlAccess;
+import br.corp.shortener.entities.ShortUrlDailyHits;
+import br.corp.shortener.jfr.AccessWriteEvent;
+import br.corp.shortener.repositories.ShortUrlAccessRepository;
+import br.corp.shortener.repositories.ShortUrlDailyHitsRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gravação assíncrona (write-behind) dos acessos.
+ * O redirecionamento apenas enfileira o evento; uma thread dedicada drena a fila
+ * e persiste os acessos em lotes, uma transação por lote, com retentativa dos lotes que falham.
+ * Na mesma transação o lote é agregado por (link, dia) e somado ao rollup diário;
+ * após o commit os hits vão para o ranking e para o contador por link ({@link HitCounter}).
+ */
+@Component
+public class AccessLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private static final long DROP_WARNING_INTERVAL_MS = 10_000;
+
+    /**
+     * Política aplicada quando a fila está cheia.
+     * DROP descarta o evento, BLOCK aguarda até offer-timeout-ms (e então descarta)
+     * e CALLER_RUNS grava o acesso na própria thread da requisição.
+     */
+    public enum OverflowPolicy { DROP, BLOCK, CALLER_RUNS }
+
+    private final ShortUrlAccessRepository accessRepository;
+    private final ShortUrlDailyHitsRepository dailyHitsRepository;
+    private final TopRankingCache topRankingCache;
+    private final HitCounter hitCounter;
+    private final TransactionTemplate transactionTemplate;
+    private ResponseVersions responseVersions; // opcional
+
+    @Value("${access-log.async.enabled:true}")
+    private boolean asyncEnabled;
+
+    @Value("${access-log.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${access-log.async.batch-size:500}")
+    private int batchSize;
+
+    @Value("${access-log.async.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${access-log.async.overflow-policy:DROP}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${access-log.async.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${access-log.async.max-retries:3}")
+    private int maxRetries;
+
+    // Com threads virtuais o worker, que passa o tempo em poll() e no JDBC, também é virtual
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private BlockingQueue<ShortUrlAccess> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong lastDropWarningAt = new AtomicLong(Long.MIN_VALUE / 2);
+
+    // Criados em bindMetrics; null sem MeterRegistry (testes unitários)
+    private Timer batchWrite;
+    private DistributionSummary batchSizes;
+
+    public AccessLogWriter(ShortUrlAccessRepository accessRepository,
+                           ShortUrlDailyHitsRepository dailyHitsRepository,
+                           TopRankingCache topRankingCache,
+                           HitCounter hitCounter,
+                           PlatformTransactionManager transactionManager) {
+        this.accessRepository = accessRepository;
+        this.dailyHitsRepository = dailyHitsRepository;
+        this.topRankingCache = topRankingCache;
+        this.hitCounter = hitCounter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Invalida os ETags de estatísticas após cada lote gravado
+    @Autowired(required = false)
+    public void setResponseVersions(ResponseVersions responseVersions) {
+        this.responseVersions = responseVersions;
+    }
+
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        batchWrite = Timer.builder("shortener.access.write")
+                .description("Gravação de acessos no banco")
+                .tag("mode", "batch")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("shortener.access.batch.size")
+                .description("Acessos por lote gravado")
+                .register(registry);
+        Gauge.builder("shortener.access.queue.size", this, AccessLogWriter::pending)
+                .register(registry);
+        FunctionCounter.builder("shortener.access.dropped", dropped, AtomicLong::get)
+                .description("Acessos descartados (fila cheia ou lote esgotou as retentativas)")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!asyncEnabled) {
+            log.info("Access log write-behind disabled; accesses will be persisted synchronously");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        worker = builder.name("access-log-writer").start(this::drainLoop);
+        log.info("Access log write-behind started: capacity={}, batchSize={}, flushIntervalMs={}, overflowPolicy={}, virtualThread={}",
+                queueCapacity, batchSize, flushIntervalMs, overflowPolicy, virtualThreads);
+    }
+
+    /**
+     * Enfileira um acesso para gravação. Retorna false se o evento foi descartado.
+     */
+    public boolean enqueue(ShortUrlAccess access) {
+        if (queue == null || !running) {
+            writeBatch(List.of(access));
+            return true;
+        }
+        if (queue.offer(access)) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(access, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            case CALLER_RUNS -> {
+                writeBatch(List.of(access));
+                return true;
+            }
+            default -> {
+                // DROP: segue para o descarte abaixo
+            }
+        }
+        long total = dropped.incrementAndGet();
+        // Um aviso por intervalo: com a fila cheia, um log por evento agravaria a sobrecarga
+        long now = System.currentTimeMillis();
+        long last = lastDropWarningAt.get();
+        if (now - last >= DROP_WARNING_INTERVAL_MS && lastDropWarningAt.compareAndSet(last, now)) {
+            log.warn("Access log queue full; dropping accesses (dropped so far={}, latest code={})", total, access.getShortUrl().getCode());
+        }
+        return false;
+    }
+
+    public int pending() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Acumula até {@code batch-size} eventos ou até {@code flush-interval-ms} desde o primeiro
+     * evento do lote, o que vier antes. Um lote que falha é mantido e regravado (a transação
+     * foi desfeita) até {@code max-retries} vezes antes de ser descartado e contado em dropped.
+     */
+    private void drainLoop() {
+        List<ShortUrlAccess> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        int failures = 0;
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    ShortUrlAccess first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                long remaining;
+                while (running && batch.size() < batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                    ShortUrlAccess next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                writeBatch(batch);
+                batch.clear();
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failures++;
+                if (failures > maxRetries) {
+                    dropped.addAndGet(batch.size());
+                    log.error("Discarding access batch of {} events after {} attempts: {}", batch.size(), failures, e.getMessage(), e);
+                    batch.clear();
+                    failures = 0;
+                    continue;
+                }
+                log.warn("Failed to persist access batch of {} events (attempt {}/{}); retrying: {}",
+                        batch.size(), failures, maxRetries + 1, e.getMessage());
+                resetIds(batch);
+                try {
+                    Thread.sleep(flushIntervalMs * failures);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        // Lote retido por falha quando o shutdown chegou: última tentativa antes de drenar a fila
+        if (!batch.isEmpty()) {
+            resetIds(batch);
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                dropped.addAndGet(batch.size());
+                log.error("Discarding access batch of {} events on shutdown: {}", batch.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    // Ids atribuídos pela sequência na tentativa desfeita: persist() de novo exige entidades novas
+    private static void resetIds(List<ShortUrlAccess> batch) {
+        for (ShortUrlAccess access : batch) {
+            access.setId(null);
+        }
+    }
+
+    /**
+     * Persiste um lote de acessos e o incremento do rollup diário numa única transação
+     * e, após o commit, atualiza o cache de ranking e os contadores por link.
+     */
+    void writeBatch(List<ShortUrlAccess> batch) {
+        if (batch.isEmpty()) return;
+        List<ShortUrlDailyHits> deltas = dailyDeltas(batch);
+        AccessWriteEvent event = new AccessWriteEvent();
+        event.begin();
+        boolean written = false;
+        try {
+            long started = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                accessRepository.insertAll(batch);
+                dailyHitsRepository.addHits(deltas);
+            });
+            if (batchWrite != null) {
+                batchWrite.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+            }
+            written = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.mode = "batch";
+                event.accesses = batch.size();
+                event.success = written;
+                event.commit();
+            }
+        }
+        log.debug("Persisted access batch: size={}", batch.size());
+        if (responseVersions != null) {
+            responseVersions.statsChanged();
+        }
+        for (ShortUrlDailyHits delta : deltas) {
+            hitCounter.add(delta.getShortUrlId(), delta.getDay(), delta.getHits());
+        }
+        for (ShortUrlAccess access : batch) {
+            try {
+                topRankingCache.onAccess(access.getShortUrl());
+            } catch (Exception e) {
+                log.warn("Failed to update top ranking cache on access for code={}: {}", access.getShortUrl().getCode(), e.getMessage());
+            }
+        }
+    }
+
+    // Agrega o lote por (link, dia UTC): um upsert por par em vez de um por acesso
+    static List<ShortUrlDailyHits> dailyDeltas(List<ShortUrlAccess> batch) {
+        Map<DayKey, Long> counts = new HashMap<>();
+        for (ShortUrlAccess access : batch) {
+            LocalDate day = LocalDate.ofInstant(access.getAccessedAt(), ZoneOffset.UTC);
+            counts.merge(new DayKey(access.getShortUrl().getId(), day), 1L, Long::sum);
+        }
+        List<ShortUrlDailyHits> deltas = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> deltas.add(new ShortUrlDailyHits(key.shortUrlId(), key.day(), hits)));
+        return deltas;
+    }
+
+    private record DayKey(Long shortUrlId, LocalDate day) {}
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker == null) return;
+        // Sem interrupt: a thread termina o lote corrente e sai no próximo poll
+        running = false;
+        try {
+            worker.join(flushIntervalMs + TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Drena completamente o que restou na fila antes de encerrar
+        List<ShortUrlAccess> batch = new ArrayList<>(batchSize);
+        int flushed = 0;
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                writeBatch(batch);
+                flushed += batch.size();
+            } catch (Exception e) {
+                log.error("Failed to persist access batch of {} events on shutdown: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("Access log write-behind stopped: flushedOnShutdown={}, dropped={}", flushed, dropped.get());
+    }
+}
@@ -0,0 +1,200 @@
+package br.corp.shortener.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Retenção de short_url_accesses por mês (UTC). Mantém {@code access-retention.months} meses
+ * completos além do atual; cada mês mais antigo é primeiro compactado no rollup diário
+ * (short_url_daily_hits) e depois descartado, na mesma transação, para que os totais não mudem.
+ * <p>
+ * PostgreSQL: a tabela é particionada por mês (V9); o descarte é um DROP da partição e o job
+ * também cria as partições dos próximos {@code access-retention.premake-months} meses, movendo
+ * para elas as linhas que já estejam na partição default.
+ * Demais bancos (H2 nos testes): DELETE da faixa do mês.
+ * <p>
+ * Idempotente: várias instâncias podem executar o job ao mesmo tempo.
+ * <p>
+ * Fuso: accessed_at é TIMESTAMP sem fuso com o horário UTC, então {@code CAST(accessed_at AS DATE)}
+ * é o mesmo dia UTC usado pelo AccessLogWriter no rollup, e os limites do mês são passados como
+ * LocalDateTime UTC, sem depender do fuso da JVM ou da sessão.
+ */
+@Component
+public class AccessRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessRetentionJob.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // O rollup já é mantido pelo AccessLogWriter; GREATEST só completa dias que ficaram abaixo do bruto.
+    // O que for completado ainda não está em hit_count: vai para uncounted_hits (HitCounter.reconcile)
+    private static final String POSTGRES_COMPACT =
+            "INSERT INTO short_url_daily_hits (short_url_id, access_date, hits, uncounted_hits) " +
+            "SELECT short_url_id, CAST(accessed_at AS DATE), COUNT(*), COUNT(*) FROM short_url_accesses " +
+            "WHERE accessed_at >= ? AND accessed_at < ? GROUP BY short_url_id, CAST(accessed_at AS DATE) " +
+            "ON CONFLICT (short_url_id, access_date) DO UPDATE SET hits = GREATEST(short_url_daily_hits.hits, EXCLUDED.hits), " +
+            "uncounted_hits = short_url_daily_hits.uncounted_hits + GREATEST(EXCLUDED.hits - short_url_daily_hits.hits, 0)";
+
+    private static final String STANDARD_COMPACT =
+            "MERGE INTO short_url_daily_hits t " +
+            "USING (SELECT short_url_id, CAST(accessed_at AS DATE) AS access_date, COUNT(*) AS hits FROM short_url_accesses " +
+            "WHERE accessed_at >= ? AND accessed_at < ? GROUP BY short_url_id, CAST(accessed_at AS DATE)) s " +
+            "ON t.short_url_id = s.short_url_id AND t.access_date = s.access_date " +
+            "WHEN MATCHED AND t.hits < s.hits THEN UPDATE SET hits = s.hits, uncounted_hits = t.uncounted_hits + s.hits - t.hits " +
+            "WHEN NOT MATCHED THEN INSERT (short_url_id, access_date, hits, uncounted_hits) VALUES (s.short_url_id, s.access_date, s.hits, s.hits)";
+
+    private static final String DELETE_RANGE = "DELETE FROM short_url_accesses WHERE accessed_at >= ? AND accessed_at < ?";
+
+    private static final String DEFAULT_HAS_ROWS =
+            "SELECT EXISTS (SELECT 1 FROM short_url_accesses_default WHERE accessed_at >= ? AND accessed_at < ?)";
+
+    // Linhas do mês presas na partição default saem para uma tabela temporária da transação
+    private static final String MOVE_OUT_OF_DEFAULT =
+            "WITH moved AS (DELETE FROM short_url_accesses_default WHERE accessed_at >= ? AND accessed_at < ? RETURNING *) " +
+            "INSERT INTO short_url_accesses_moving SELECT * FROM moved";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private volatile Boolean postgres;
+    private ResponseVersions responseVersions; // opcional
+
+    @Value("${access-retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${access-retention.months:12}")
+    private int retentionMonths;
+
+    @Value("${access-retention.premake-months:2}")
+    private int premakeMonths;
+
+    public AccessRetentionJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Autowired(required = false)
+    public void setResponseVersions(ResponseVersions responseVersions) {
+        this.responseVersions = responseVersions;
+    }
+
+    @Scheduled(cron = "${access-retention.cron:0 30 3 * * *}", zone = "UTC")
+    public void run() {
+        if (!enabled) return;
+        try {
+            ensurePartitions(YearMonth.now(ZoneOffset.UTC));
+            purgeExpired(YearMonth.now(ZoneOffset.UTC));
+        } catch (Exception e) {
+            log.error("Access retention run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cria as partições do mês atual e dos próximos meses (apenas PostgreSQL), evitando que
+     * acessos novos caiam na partição default. Se a default já tiver linhas do mês, elas são
+     * movidas para a partição nova. Uma falha num mês é registrada e não impede os demais
+     * nem a retenção.
+     */
+    public void ensurePartitions(YearMonth current) {
+        if (!isPostgres()) return;
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                createPartition(month);
+            } catch (Exception e) {
+                log.warn("Failed to create access partition {}: {}", partitionName(month), e.getMessage());
+            }
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        LocalDateTime from = startOf(month);
+        LocalDateTime to = startOf(month.plusMonths(1));
+        String create = "CREATE TABLE IF NOT EXISTS " + partitionName(month)
+                + " PARTITION OF short_url_accesses FOR VALUES FROM ('" + month.atDay(1)
+                + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+        // CREATE ... PARTITION OF falha se a default tiver linhas do intervalo
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(DEFAULT_HAS_ROWS, Boolean.class, from, to))) {
+            jdbcTemplate.execute(create);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TEMP TABLE short_url_accesses_moving (LIKE short_url_accesses) ON COMMIT DROP");
+            int moved = jdbcTemplate.update(MOVE_OUT_OF_DEFAULT, from, to);
+            jdbcTemplate.execute(create);
+            jdbcTemplate.execute("INSERT INTO short_url_accesses SELECT * FROM short_url_accesses_moving");
+            log.info("Moved {} access row(s) from the default partition into {}", moved, partitionName(month));
+        });
+    }
+
+    /**
+     * Compacta e descarta os meses anteriores à janela de retenção, do mais antigo ao mais recente.
+     * Retorna a quantidade de meses descartados.
+     */
+    public int purgeExpired(YearMonth current) {
+        YearMonth firstKept = current.minusMonths(retentionMonths);
+        // Lido como LocalDateTime: o valor da coluna é o horário UTC, sem conversão pelo fuso da JVM
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(accessed_at) FROM short_url_accesses", LocalDateTime.class);
+        if (oldest == null) return 0;
+        YearMonth month = YearMonth.from(oldest);
+        int purged = 0;
+        for (; month.isBefore(firstKept); month = month.plusMonths(1)) {
+            purgeMonth(month);
+            purged++;
+        }
+        if (purged > 0) {
+            // A compactação pode completar dias do rollup
+            if (responseVersions != null) {
+                responseVersions.statsChanged();
+            }
+            log.info("Access retention purged {} month(s) before {}", purged, firstKept);
+        }
+        return purged;
+    }
+
+    private void purgeMonth(YearMonth month) {
+        LocalDateTime from = startOf(month);
+        LocalDateTime to = startOf(month.plusMonths(1));
+        transactionTemplate.executeWithoutResult(status -> {
+            int days = jdbcTemplate.update(isPostgres() ? POSTGRES_COMPACT : STANDARD_COMPACT, from, to);
+            if (isPostgres()) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+            }
+            // Linhas do mês na partição default (PostgreSQL) ou na tabela sem partições
+            int deleted = jdbcTemplate.update(DELETE_RANGE, from, to);
+            log.info("Access retention compacted month {}: rollupRows={}, deletedRows={}", month, days, deleted);
+        });
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            pg = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    static String partitionName(YearMonth month) {
+        return "short_url_accesses_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    // accessed_at (TIMESTAMP sem fuso) guarda o horário UTC (hibernate.jdbc.time_zone=UTC); LocalDateTime
+    // é enviado como TIMESTAMP sem conversão, ao contrário de Timestamp.valueOf, que usa o fuso da JVM
+    private static LocalDateTime startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay();
+    }
+}
@@ -0,0 +1,32 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.ShortUrl;
+
+/**
+ * Resultado de um item de {@link UrlShortenerService#shortenBatch(java.util.List)}:
+ * o link (criado ou já existente) ou o erro que rejeitou o item.
+ */
+public record BatchItemResult(Status status, ShortUrl shortUrl, String error, String message) {
+
+    public enum Status { CREATED, EXISTING, INVALID, CONFLICT, FAILED }
+
+    static BatchItemResult created(ShortUrl su) {
+        return new BatchItemResult(Status.CREATED, su, null, null);
+    }
+
+    static BatchItemResult existing(ShortUrl su) {
+        return new BatchItemResult(Status.EXISTING, su, null, null);
+    }
+
+    static BatchItemResult invalid(String message) {
+        return new BatchItemResult(Status.INVALID, null, "Erro de validação", message);
+    }
+
+    static BatchItemResult conflict(String code) {
+        return new BatchItemResult(Status.CONFLICT, null, "Código já está em uso", "O código " + code + " já está associado a outra URL");
+    }
+
+    static BatchItemResult failed(String message) {
+        return new BatchItemResult(Status.FAILED, null, "Erro interno", message);
+    }
+}
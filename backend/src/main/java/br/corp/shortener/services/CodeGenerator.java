@@ -0,0 +1,17 @@
+package br.corp.shortener.services;
+
+/**
+ * Estratégia de geração de códigos curtos (5 caracteres base62).
+ */
+public interface CodeGenerator {
+
+    String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    int CODE_LENGTH = 5;
+
+    String nextCode();
+
+    /**
+     * true quando o código gerado pode colidir com um existente e precisa ser checado antes do insert.
+     */
+    boolean requiresExistenceCheck();
+}
@@ -0,0 +1,65 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.UrlHash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch thread-safe para estimar frequências em memória fixa.
+ * A estimativa nunca fica abaixo do valor real e, com probabilidade 1 - delta,
+ * excede o real em no máximo epsilon * N (N = soma de todos os incrementos).
+ * Largura = ceil(e / epsilon), profundidade = ceil(ln(1 / delta)).
+ */
+final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+
+    CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1) throw new IllegalArgumentException("epsilon deve estar em (0,1)");
+        if (delta <= 0 || delta >= 1) throw new IllegalArgumentException("delta deve estar em (0,1)");
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new AtomicLongArray(Math.multiplyExact(width, depth));
+    }
+
+    /**
+     * Soma {@code count} à chave e retorna a nova estimativa.
+     */
+    long add(String key, long count) {
+        if (key == null || count <= 0) return estimate(key);
+        long hash = UrlHash.of(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.addAndGet(index(hash, row), count));
+        }
+        return min;
+    }
+
+    long estimate(String key) {
+        if (key == null) return 0;
+        long hash = UrlHash.of(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(index(hash, row)));
+        }
+        return min;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    // Double hashing: uma coluna independente por linha a partir de um único hash de 64 bits
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int column = ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+        return row * width + column;
+    }
+}
@@ -0,0 +1,225 @@
+package br.corp.shortener.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Acumula hits por link e dia (UTC) em memória (LongAdder) e os soma à coluna
+ * short_urls.hit_count em UPDATEs relativos em lote. Incrementos relativos comutam,
+ * então várias instâncias podem gravar a mesma linha sem coordenação.
+ * <p>
+ * Buffer duplo: cada flush troca o mapa ativo e grava o mapa aposentado no ciclo
+ * anterior, dando a quem ainda segura a referência antiga um intervalo inteiro para
+ * terminar o incremento. No shutdown os dois mapas são gravados.
+ * <p>
+ * Cada flush também desconta o que gravou de short_url_daily_hits.uncounted_hits (somado
+ * pelo AccessLogWriter junto com hits), na mesma transação. Deltas perdidos numa queda da
+ * instância (ou que falham também no shutdown) ficam em uncounted_hits; a reconciliação
+ * periódica os soma a hit_count nos dias encerrados (antes de ontem, UTC), que não têm
+ * deltas pendentes em nenhuma instância. Links acessados todos os dias também são corrigidos.
+ */
+@Component
+public class HitCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(HitCounter.class);
+
+    private static final String UPDATE_SQL = "UPDATE short_urls SET hit_count = hit_count + ? WHERE id = ?";
+
+    private static final String COUNTED_SQL =
+            "UPDATE short_url_daily_hits SET uncounted_hits = uncounted_hits - ? WHERE short_url_id = ? AND access_date = ?";
+
+    // Dias encerrados com diferença; no PostgreSQL lidos pelo índice parcial (uncounted_hits <> 0)
+    private static final String UNCOUNTED_SQL =
+            "SELECT short_url_id, access_date, uncounted_hits FROM short_url_daily_hits WHERE access_date < ? AND uncounted_hits <> 0";
+
+    // Só desconta se o valor lido não mudou: duas instâncias reconciliando não somam a mesma diferença
+    private static final String SETTLE_SQL =
+            "UPDATE short_url_daily_hits SET uncounted_hits = 0 WHERE short_url_id = ? AND access_date = ? AND uncounted_hits = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${hit-counter.batch-size:500}")
+    private int batchSize;
+
+    private volatile ConcurrentMap<Long, ConcurrentMap<LocalDate, LongAdder>> active = new ConcurrentHashMap<>();
+    private volatile ConcurrentMap<Long, ConcurrentMap<LocalDate, LongAdder>> retired = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public HitCounter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void add(Long shortUrlId, LocalDate day, long hits) {
+        if (shortUrlId == null || day == null || hits <= 0) return;
+        active.computeIfAbsent(shortUrlId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(day, d -> new LongAdder())
+                .add(hits);
+    }
+
+    /**
+     * Hits ainda não gravados no banco por esta instância.
+     */
+    public long pending(Long shortUrlId) {
+        if (shortUrlId == null) return 0;
+        return sumOf(active.get(shortUrlId)) + sumOf(retired.get(shortUrlId));
+    }
+
+    @Scheduled(fixedDelayString = "${hit-counter.flush-interval-ms:5000}",
+            initialDelayString = "${hit-counter.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            // O mapa aposentado continua visível em pending() até o commit do UPDATE
+            ConcurrentMap<Long, ConcurrentMap<LocalDate, LongAdder>> toWrite = retired;
+            if (!write(toWrite)) {
+                requeue(toWrite);
+            }
+            retired = active;
+            active = new ConcurrentHashMap<>();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Soma a hit_count o uncounted_hits dos dias encerrados (antes de ontem, UTC), recuperando
+     * deltas perdidos numa queda ou num shutdown com falha, e zera esses dias. Retorna a
+     * quantidade de links corrigidos.
+     */
+    @Scheduled(fixedDelayString = "${hit-counter.reconcile-interval-ms:3600000}",
+            initialDelayString = "${hit-counter.reconcile-interval-ms:3600000}")
+    public int reconcile() {
+        LocalDate settledBefore = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        try {
+            Integer fixed = transactionTemplate.execute(status -> {
+                List<Uncounted> rows = jdbcTemplate.query(UNCOUNTED_SQL, (rs, i) -> new Uncounted(
+                        rs.getLong(1), rs.getObject(2, LocalDate.class), rs.getLong(3)), settledBefore);
+                if (rows.isEmpty()) return 0;
+                rows.sort(Comparator.comparingLong(Uncounted::shortUrlId).thenComparing(Uncounted::day));
+                int[][] settled = jdbcTemplate.batchUpdate(SETTLE_SQL, rows, batchSize, (ps, r) -> {
+                    ps.setLong(1, r.shortUrlId());
+                    ps.setObject(2, r.day());
+                    ps.setLong(3, r.hits());
+                });
+                Map<Long, Long> missing = new TreeMap<>();
+                int i = 0;
+                for (int[] batch : settled) {
+                    for (int count : batch) {
+                        Uncounted r = rows.get(i++);
+                        // SUCCESS_NO_INFO (-2): o driver não informa a contagem; a transação garante a linha
+                        if (count != 0) missing.merge(r.shortUrlId(), r.hits(), Long::sum);
+                    }
+                }
+                List<long[]> deltas = new ArrayList<>(missing.size());
+                missing.forEach((id, hits) -> {
+                    if (hits != 0) deltas.add(new long[]{id, hits});
+                });
+                jdbcTemplate.batchUpdate(UPDATE_SQL, deltas, batchSize, (ps, d) -> {
+                    ps.setLong(1, d[1]);
+                    ps.setLong(2, d[0]);
+                });
+                return deltas.size();
+            });
+            int links = fixed != null ? fixed : 0;
+            if (links > 0) {
+                log.info("Reconciled hit_count from uncounted daily hits: links={}", links);
+            }
+            return links;
+        } catch (Exception e) {
+            log.warn("Failed to reconcile hit_count from daily rollup: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Chamado após o AccessLogWriter (que depende deste bean) drenar a fila
+        flushLock.lock();
+        try {
+            boolean ok = write(retired) & write(active);
+            if (!ok) {
+                log.error("Hit counters not flushed on shutdown; hit_count lags the daily rollup until reconcile() "
+                        + "runs after the affected UTC days are settled");
+            }
+            retired = new ConcurrentHashMap<>();
+            active = new ConcurrentHashMap<>();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean write(ConcurrentMap<Long, ConcurrentMap<LocalDate, LongAdder>> counters) {
+        if (counters.isEmpty()) return true;
+        List<long[]> deltas = new ArrayList<>(counters.size());
+        List<Uncounted> days = new ArrayList<>(counters.size());
+        for (Map.Entry<Long, ConcurrentMap<LocalDate, LongAdder>> e : counters.entrySet()) {
+            long total = 0;
+            for (Map.Entry<LocalDate, LongAdder> d : e.getValue().entrySet()) {
+                long hits = d.getValue().sum();
+                if (hits <= 0) continue;
+                days.add(new Uncounted(e.getKey(), d.getKey(), hits));
+                total += hits;
+            }
+            if (total > 0) deltas.add(new long[]{e.getKey(), total});
+        }
+        if (deltas.isEmpty()) return true;
+        // Ordem estável de chaves reduz deadlocks entre instâncias gravando as mesmas linhas
+        deltas.sort(Comparator.comparingLong(d -> d[0]));
+        days.sort(Comparator.comparingLong(Uncounted::shortUrlId).thenComparing(Uncounted::day));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, deltas, batchSize, (ps, d) -> {
+                    ps.setLong(1, d[1]);
+                    ps.setLong(2, d[0]);
+                });
+                jdbcTemplate.batchUpdate(COUNTED_SQL, days, batchSize, (ps, d) -> {
+                    ps.setLong(1, d.hits());
+                    ps.setLong(2, d.shortUrlId());
+                    ps.setObject(3, d.day());
+                });
+            });
+            log.debug("Flushed hit counters: links={}", deltas.size());
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to flush {} hit counters; will retry: {}", deltas.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Devolve os deltas não gravados ao mapa ativo: serão regravados num próximo ciclo
+    private void requeue(ConcurrentMap<Long, ConcurrentMap<LocalDate, LongAdder>> counters) {
+        counters.forEach((id, days) -> days.forEach((day, adder) -> add(id, day, adder.sum())));
+    }
+
+    private static long sumOf(ConcurrentMap<LocalDate, LongAdder> days) {
+        if (days == null) return 0;
+        long total = 0;
+        for (LongAdder adder : days.values()) total += adder.sum();
+        return total;
+    }
+
+    // Hits de um link num dia: delta a gravar (flush) ou diferença a reconciliar
+    private record Uncounted(long shortUrlId, LocalDate day, long hits) {}
+}
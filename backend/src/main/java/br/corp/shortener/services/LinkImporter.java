@@ -0,0 +1,407 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.LinkImportError;
+import br.corp.shortener.dto.LinkImportResponse;
+import br.corp.shortener.dto.ShortenRequest;
+import br.corp.shortener.exceptions.InvalidImportFileException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Importa links de um arquivo NDJSON ou CSV (opcionalmente gzip) em streaming.
+ * O arquivo é lido linha a linha e enviado a {@link UrlShortenerService#shortenBatch(List)}
+ * em blocos de {@code link-import.chunk-size}: cada bloco é validado com as mesmas regras de
+ * {@code POST /shorten} e gravado em sua própria transação. A memória fica limitada a um bloco
+ * mais a lista de erros reportados, independentemente do tamanho do arquivo.
+ * <p>
+ * NDJSON: um objeto por linha com {@code url} (ou {@code originalUrl}) e {@code code} opcional.
+ * CSV: cabeçalho com a coluna {@code url} (ou {@code originalUrl}) e {@code code} opcional; aceita
+ * o arquivo de {@code GET /stats/export?format=csv}.
+ * <p>
+ * Limites contra arquivos malformados ou hostis: uma linha NDJSON ou um registro CSV acima de
+ * {@code link-import.max-record-chars} é rejeitado com erro na linha e a leitura segue na linha
+ * seguinte (uma aspa não fechada consome no máximo esse limite, não o resto do arquivo); o
+ * conteúdo descompactado acima de {@code link-import.max-decompressed-bytes} interrompe a
+ * importação (blocos já gravados permanecem).
+ */
+@Component
+public class LinkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkImporter.class);
+
+    private final UrlShortenerService service;
+    private final ObjectMapper objectMapper;
+
+    @Value("${link-import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${link-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // 0 desabilita os limites
+    @Value("${link-import.max-record-chars:8192}")
+    private int maxRecordChars;
+
+    @Value("${link-import.max-decompressed-bytes:268435456}")
+    private long maxDecompressedBytes;
+
+    public LinkImporter(UrlShortenerService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+    }
+
+    public LinkImportResponse importLinks(InputStream in, StatsExporter.Format format) throws IOException {
+        long start = System.nanoTime();
+        Progress progress = new Progress(maxReportedErrors);
+        try (LineReader reader = new LineReader(
+                new InputStreamReader(decompress(in, maxDecompressedBytes), StandardCharsets.UTF_8), maxRecordChars)) {
+            if (format == StatsExporter.Format.CSV) {
+                readCsv(reader, progress);
+            } else {
+                readNdjson(reader, progress);
+            }
+            progress.flush();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Link import finished: format={}, records={}, created={}, existing={}, failed={}, elapsedMs={}",
+                format, progress.records, progress.created, progress.existing, progress.failed, elapsedMs);
+        return new LinkImportResponse(progress.records, progress.created, progress.existing, progress.failed,
+                elapsedMs, progress.errors, progress.errorsTruncated);
+    }
+
+    private void readNdjson(LineReader reader, Progress progress) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            long lineNo = reader.lineNo();
+            if (reader.oversized()) {
+                progress.reject(lineNo, "linha excede " + maxRecordChars + " caracteres");
+                continue;
+            }
+            if (line.isBlank()) continue;
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                progress.reject(lineNo, "JSON inválido");
+                continue;
+            }
+            if (node == null || !node.isObject()) {
+                progress.reject(lineNo, "linha deve ser um objeto JSON");
+                continue;
+            }
+            JsonNode url = node.hasNonNull("url") ? node.get("url") : node.get("originalUrl");
+            progress.accept(lineNo, new ShortenRequest(text(url), text(node.get("code"))));
+        }
+    }
+
+    private void readCsv(LineReader reader, Progress progress) throws IOException {
+        List<String> header = null;
+        int urlColumn = -1;
+        int codeColumn = -1;
+        List<String> record;
+        while (true) {
+            long recordLine = reader.lineNo() + 1;
+            try {
+                record = nextCsvRecord(reader);
+            } catch (OversizedRecordException e) {
+                if (header == null) {
+                    throw new InvalidImportFileException("Cabeçalho CSV excede " + maxRecordChars + " caracteres");
+                }
+                progress.reject(recordLine, "registro excede " + maxRecordChars + " caracteres (aspas não fechadas?)");
+                continue;
+            }
+            if (record == null) break;
+            if (record.size() == 1 && record.get(0).isBlank()) continue;
+            if (header == null) {
+                header = record;
+                for (int i = 0; i < header.size(); i++) {
+                    String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+                    if (name.equals("url") || (name.equals("originalurl") && urlColumn < 0)) urlColumn = i;
+                    if (name.equals("code")) codeColumn = i;
+                }
+                if (urlColumn < 0) {
+                    throw new InvalidImportFileException("Cabeçalho CSV deve ter a coluna url ou originalUrl");
+                }
+                continue;
+            }
+            String url = urlColumn < record.size() ? record.get(urlColumn) : null;
+            String code = codeColumn >= 0 && codeColumn < record.size() ? record.get(codeColumn) : null;
+            progress.accept(recordLine, new ShortenRequest(url, code == null || code.isBlank() ? null : code.trim()));
+        }
+        if (header == null) {
+            throw new InvalidImportFileException("Arquivo CSV vazio");
+        }
+    }
+
+    /**
+     * Lê um registro CSV (RFC 4180): campos entre aspas podem conter separador, aspas
+     * duplicadas e quebras de linha. Retorna null no fim do arquivo. Um registro acima do
+     * limite do leitor lança {@link OversizedRecordException} ao fim da linha em que o
+     * limite foi atingido; a leitura seguinte começa na linha seguinte.
+     */
+    static List<String> nextCsvRecord(LineReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) return null;
+        long recordChars = line.length();
+        if (reader.oversized()) throw new OversizedRecordException();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i >= line.length()) {
+                if (!quoted) break;
+                // Quebra de linha dentro de campo entre aspas: continua na próxima linha
+                String next = reader.readLine();
+                if (next == null) break;
+                recordChars += next.length() + 1;
+                if (reader.oversized() || reader.exceeds(recordChars)) throw new OversizedRecordException();
+                field.append('\n');
+                line = next;
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Detecta gzip pelos bytes mágicos (1f 8b), sem depender do nome ou content type do upload
+    private static InputStream decompress(InputStream in, long maxBytes) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        if (b1 == 0x1f && b2 == 0x8b) {
+            GZIPInputStream gzip = new GZIPInputStream(buffered, 64 * 1024);
+            return maxBytes > 0 ? new SizeLimitedInputStream(gzip, maxBytes) : gzip;
+        }
+        return buffered;
+    }
+
+    private static String text(JsonNode node) {
+        if (node == null || node.isNull()) return null;
+        String value = node.asText();
+        return value.isBlank() ? null : value;
+    }
+
+    /**
+     * Bloco pendente e totais acumulados de uma importação.
+     */
+    private final class Progress {
+        final int maxErrors;
+        final List<ShortenRequest> chunk = new ArrayList<>(chunkSize);
+        final List<Long> chunkLines = new ArrayList<>(chunkSize);
+        final List<LinkImportError> errors = new ArrayList<>();
+        boolean errorsTruncated;
+        long records;
+        long created;
+        long existing;
+        long failed;
+
+        Progress(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void accept(long line, ShortenRequest request) {
+            records++;
+            chunk.add(request);
+            chunkLines.add(line);
+            if (chunk.size() >= chunkSize) flush();
+        }
+
+        void reject(long line, String message) {
+            records++;
+            failed++;
+            error(new LinkImportError(line, "Erro de validação", message));
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) return;
+            List<BatchItemResult> results = service.shortenBatch(chunk);
+            for (int i = 0; i < results.size(); i++) {
+                BatchItemResult r = results.get(i);
+                switch (r.status()) {
+                    case CREATED -> created++;
+                    case EXISTING -> existing++;
+                    default -> {
+                        failed++;
+                        error(new LinkImportError(chunkLines.get(i), r.error(), r.message()));
+                    }
+                }
+            }
+            chunk.clear();
+            chunkLines.clear();
+            log.info("Link import progress: records={}, created={}, existing={}, failed={}", records, created, existing, failed);
+        }
+
+        private void error(LinkImportError error) {
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+
+    /**
+     * Leitor de linhas com tamanho máximo: uma linha acima do limite é consumida até o fim
+     * sem ser acumulada ({@link #oversized()} fica true), então a memória fica limitada ao
+     * limite mesmo sem nenhuma quebra de linha no arquivo.
+     */
+    static final class LineReader implements Closeable {
+        private final Reader in;
+        private final int maxChars;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int pos;
+        private int limit;
+        private long lineNo;
+        private boolean oversized;
+
+        LineReader(Reader in, int maxChars) {
+            this.in = in;
+            this.maxChars = maxChars;
+        }
+
+        /**
+         * Próxima linha sem o terminador ({@code \n} ou {@code \r\n}), ou null no fim do arquivo.
+         * Linha acima do limite volta vazia, com {@link #oversized()} true.
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            oversized = false;
+            boolean read = false;
+            while (true) {
+                if (pos >= limit) {
+                    limit = in.read(buffer);
+                    pos = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (!read) return null;
+                        break;
+                    }
+                }
+                read = true;
+                int start = pos;
+                while (pos < limit && buffer[pos] != '\n') pos++;
+                if (!oversized) {
+                    line.append(buffer, start, pos - start);
+                    if (exceeds(line.length())) {
+                        oversized = true;
+                        line.setLength(0);
+                    }
+                }
+                if (pos < limit) {
+                    pos++; // consome o \n
+                    break;
+                }
+            }
+            lineNo++;
+            int len = line.length();
+            if (len > 0 && line.charAt(len - 1) == '\r') line.setLength(len - 1);
+            return line.toString();
+        }
+
+        boolean oversized() {
+            return oversized;
+        }
+
+        boolean exceeds(long chars) {
+            return maxChars > 0 && chars > maxChars;
+        }
+
+        long lineNo() {
+            return lineNo;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Registro CSV acima de link-import.max-record-chars; sem stack trace, é um caso de dado inválido
+    static final class OversizedRecordException extends IOException {
+        OversizedRecordException() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * Interrompe a leitura quando o conteúdo descompactado passa de {@code maxBytes} (gzip bomb).
+     */
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count(n);
+            return n;
+        }
+
+        private void count(int n) {
+            count += n;
+            if (count > maxBytes) {
+                throw new InvalidImportFileException("Arquivo descompactado excede " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package br.corp.shortener.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache negativo de códigos inexistentes (limitado e com TTL).
+ * Evita uma consulta ao banco por 404 quando robôs varrem o espaço de códigos.
+ * A entrada é invalidada quando o código é criado; em múltiplas instâncias,
+ * o TTL limita por quanto tempo um código recém-criado em outro nó pode responder 404.
+ */
+@Component
+public class NegativeCodeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(NegativeCodeCache.class);
+
+    private final Cache<String, Boolean> unknownCodes;
+
+    private final LongAdder negativeHits = new LongAdder();
+
+    public NegativeCodeCache(@Value("${negative-cache.maximum-size:100000}") long maximumSize,
+                             @Value("${negative-cache.ttl-ms:30000}") long ttlMs) {
+        this.unknownCodes = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        log.info("Negative code cache configured: maximumSize={}, ttlMs={}", maximumSize, ttlMs);
+    }
+
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("shortener.cache.lookups", negativeHits, LongAdder::sum)
+                .tag("cache", "negative").tag("index", "byCode").tag("result", "hit")
+                .register(registry);
+        Gauge.builder("shortener.cache.size", unknownCodes, Cache::estimatedSize)
+                .tag("cache", "negative")
+                .register(registry);
+    }
+
+    /**
+     * Retorna true se o código consta como inexistente (hit negativo).
+     */
+    public boolean isKnownMissing(String code) {
+        if (code == null) return false;
+        if (unknownCodes.getIfPresent(code) != null) {
+            negativeHits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void recordMiss(String code) {
+        if (code == null) return;
+        unknownCodes.put(code, Boolean.TRUE);
+    }
+
+    public void invalidate(String code) {
+        if (code == null) return;
+        unknownCodes.invalidate(code);
+    }
+
+    public long negativeHitCount() {
+        return negativeHits.sum();
+    }
+}
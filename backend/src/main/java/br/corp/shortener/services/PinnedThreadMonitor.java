@@ -0,0 +1,117 @@
+package br.corp.shortener.services;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Diagnóstico de pinning de threads virtuais: assina o evento JFR {@code jdk.VirtualThreadPinned}
+ * (thread virtual bloqueada dentro de {@code synchronized} ou de código nativo, segurando a
+ * carrier thread) e registra um WARN na primeira ocorrência de cada ponto de código; as demais
+ * só incrementam o contador. Ativo apenas com {@code spring.threads.virtual.enabled=true}.
+ * <p>
+ * Usa um {@link RecordingStream} em memória, sem gravar arquivo; o custo é o do próprio evento,
+ * emitido só quando o bloqueio passa de {@code virtual-threads.pinning.threshold-ms}.
+ */
+@Component
+public class PinnedThreadMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${virtual-threads.pinning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private volatile RecordingStream stream;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (!virtualThreads || !enabled) {
+            log.info("Virtual thread pinning monitor inactive: virtualThreads={}, enabled={}", virtualThreads, enabled);
+            return;
+        }
+        start();
+    }
+
+    void start() {
+        try {
+            RecordingStream rs = new RecordingStream();
+            rs.enable(EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            rs.onEvent(EVENT, this::onPinned);
+            rs.startAsync();
+            stream = rs;
+            log.info("Virtual thread pinning monitor started: thresholdMs={}", thresholdMs);
+        } catch (Exception | LinkageError e) {
+            // JFR indisponível (ex.: JVM sem o módulo jdk.jfr): a aplicação segue sem o diagnóstico
+            log.warn("Virtual thread pinning monitor unavailable: {}", e.getMessage());
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        String frames = frames(event.getStackTrace());
+        // Ponto de código: primeiro frame fora do JDK (Thread.sleep, Object.wait etc. se repetem em todo lugar)
+        String site = frames.lines()
+                .filter(l -> !l.startsWith("    at java.") && !l.startsWith("    at jdk."))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "<sem stack>" : frames.lines().findFirst().orElse(frames));
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms; further events at this site are only counted:\n{}",
+                    event.getDuration().toMillis(), frames);
+        } else {
+            log.debug("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    // Frames do topo da pilha, ignorando os internos do JDK que fazem o park
+    private static String frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return "";
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .filter(f -> f.isJavaFrame() && !f.getMethod().getType().getName().startsWith("java.lang.VirtualThread"))
+                .filter(f -> !f.getMethod().getType().getName().startsWith("jdk.internal."))
+                .limit(LOGGED_FRAMES)
+                .map(f -> "    at " + f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Total de eventos de pinning acima do limiar desde o início.
+     */
+    public long pinnedEvents() {
+        return pinnedEvents.sum();
+    }
+
+    @PreDestroy
+    public void stop() {
+        RecordingStream rs = stream;
+        if (rs != null) {
+            rs.close();
+        }
+    }
+}
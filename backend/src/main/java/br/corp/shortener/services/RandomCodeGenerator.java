@@ -0,0 +1,30 @@
+package br.corp.shortener.services;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Geração aleatória (SecureRandom). Pode colidir: exige checagem de existência e retentativas.
+ */
+@Component
+@ConditionalOnProperty(name = "code-generator.strategy", havingValue = "random", matchIfMissing = true)
+public class RandomCodeGenerator implements CodeGenerator {
+
+    private final Random random = new SecureRandom();
+
+    @Override
+    public String nextCode() {
+        return random.ints(CODE_LENGTH, 0, ALPHABET.length())
+                .mapToObj(ALPHABET::charAt)
+                .collect(StringBuilder::new, StringBuilder::append, StringBuilder::append)
+                .toString();
+    }
+
+    @Override
+    public boolean requiresExistenceCheck() {
+        return true;
+    }
+}
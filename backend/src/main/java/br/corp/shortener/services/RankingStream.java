@@ -0,0 +1,388 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.RankingDelta;
+import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.dto.RankingPosition;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transmissão do ranking por Server-Sent Events ({@code GET /ranking/stream}).
+ * <p>
+ * A cada {@code ranking-stream.tick-ms} o ranking do {@link TopRankingCache} é comparado com o
+ * último publicado (só quando {@link TopRankingCache#version()} mudou); a diferença é serializada
+ * uma única vez e o mesmo frame é enfileirado para todos os assinantes. Acessos entre dois ticks
+ * são agrupados num único evento.
+ * <p>
+ * Eventos: {@code snapshot} (ranking inteiro, na conexão) e {@code delta} (códigos que entraram
+ * ou mudaram de posição/hits e códigos que saíram). Aplicar um delta é idempotente, então o
+ * cliente só precisa substituir/remover as entradas informadas.
+ * <p>
+ * Uma thread coordenadora calcula diferenças e enfileira frames, sem escrever em socket: antes do
+ * snapshot de um novo assinante, a mudança pendente é publicada aos atuais, então ninguém perde
+ * um delta. Cada assinante tem fila própria ({@code ranking-stream.max-pending-frames}) escrita
+ * por uma thread virtual própria, criada enquanto há frames a enviar; fila cheia ou um envio parado
+ * há mais de {@code ranking-stream.send-timeout-ms} desconectam o assinante, que reconecta e recebe
+ * um snapshot novo. O envio parado é interrompido e o emitter concluído com erro, fechando a
+ * resposta; mesmo que o envio não retorne, ele só prende a thread daquele assinante.
+ */
+@Component
+public class RankingStream {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingStream.class);
+
+    private final TopRankingCache topRankingCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ranking-stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${ranking-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${ranking-stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${ranking-stream.max-pending-frames:16}")
+    private int maxPendingFrames;
+
+    @Value("${ranking-stream.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Coordenadora: calcula diferenças e enfileira; nunca bloqueia em socket
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ranking-stream");
+        t.setDaemon(true);
+        return t;
+    });
+    // Uma thread virtual por assinante com frames pendentes: um socket parado não ocupa a escrita
+    // dos demais. SseEmitter.send é synchronized (pinning), mas a espera do Tomcat pelo socket é
+    // Object.wait, para a qual o agendador de threads virtuais compensa com outra carrier thread
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("ranking-stream-writer-", 0).factory());
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+
+    // Acessados apenas pela thread coordenadora
+    private long publishedVersion = -1;
+    private List<RankingItem> published = List.of();
+    private long lastSentAt;
+
+    public RankingStream(TopRankingCache topRankingCache, ObjectMapper objectMapper) {
+        this.topRankingCache = topRankingCache;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Novo assinante; recebe o snapshot atual e, depois, os deltas. Retorna null quando o
+     * limite de assinantes desta instância foi atingido.
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            log.warn("Ranking stream subscriber limit reached: {}", maxSubscribers);
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(createEmitter());
+        SseEmitter emitter = subscriber.emitter;
+        // Concluído pelo container (desconexão, timeout): nada mais a escrever
+        emitter.onCompletion(() -> subscriber.close(true));
+        emitter.onTimeout(() -> subscriber.close(true));
+        emitter.onError(e -> subscriber.close(true));
+        try {
+            sender.execute(() -> {
+                // Publica a mudança pendente aos atuais antes de avançar a versão publicada
+                publishChanges();
+                RankingDelta snapshot = new RankingDelta(publishedVersion, positions(published), List.of());
+                if (subscriber.offer(frame("snapshot", snapshot))) {
+                    subscribers.add(subscriber);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return null; // encerrando
+        }
+        return emitter;
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Assinantes desconectados por fila cheia ou envio parado.
+     */
+    public long droppedSubscribers() {
+        return droppedSubscribers.get();
+    }
+
+    @Scheduled(fixedDelayString = "${ranking-stream.tick-ms:1000}",
+            initialDelayString = "${ranking-stream.tick-ms:1000}")
+    public void tick() {
+        if (subscribers.isEmpty()) return;
+        // Tick anterior ainda na fila da coordenadora: a próxima diferença incluirá este
+        if (!sending.compareAndSet(false, true)) return;
+        try {
+            sender.execute(() -> {
+                try {
+                    broadcast();
+                } finally {
+                    sending.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sending.set(false);
+        }
+    }
+
+    private void broadcast() {
+        dropStalled();
+        if (publishChanges()) return;
+        if (System.currentTimeMillis() - lastSentAt >= heartbeatMs) {
+            // Comentário SSE: mantém a conexão viva em proxies sem gerar evento no cliente
+            sendAll(SseEmitter.event().comment("keep-alive").build());
+        }
+    }
+
+    // Relê o ranking se a versão mudou e envia a diferença; retorna true quando houve delta
+    private boolean publishChanges() {
+        long version = topRankingCache.version();
+        if (version == publishedVersion) return false;
+        List<RankingItem> previous = published;
+        published = topRankingCache.getTop();
+        publishedVersion = version;
+        RankingDelta delta = diff(previous, published, publishedVersion);
+        if (delta.changed().isEmpty() && delta.removed().isEmpty()) return false;
+        sendAll(frame("delta", delta));
+        return true;
+    }
+
+    private void sendAll(Set<DataWithMediaType> frame) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(frame)) {
+                drop(subscriber, "queue full");
+            }
+        }
+        lastSentAt = System.currentTimeMillis();
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        long limit = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > limit) {
+                drop(subscriber, "send timeout");
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscriber.fail(reason)) {
+            // Envio em andamento de um assinante lento está parado no socket
+            subscriber.interruptSend();
+            long total = droppedSubscribers.incrementAndGet();
+            log.debug("Dropping slow ranking stream subscriber: reason={}, droppedSoFar={}", reason, total);
+        }
+    }
+
+    private Set<DataWithMediaType> frame(String name, RankingDelta payload) {
+        try {
+            return SseEmitter.event()
+                    .name(name)
+                    .id(Long.toString(payload.version()))
+                    .data(objectMapper.writeValueAsString(payload), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar evento do ranking", e);
+        }
+    }
+
+    /**
+     * Assinante com fila própria; no máximo uma thread de escrita drena a fila por vez, então
+     * os frames chegam em ordem. A thread termina quando a fila esvazia.
+     */
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Set<DataWithMediaType>> pending = new ArrayBlockingQueue<>(Math.max(1, maxPendingFrames));
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean completed = new AtomicBoolean();
+        volatile long sendingSince; // 0 fora de um envio
+        volatile Thread writer; // thread do envio em andamento
+        volatile String failure; // motivo da desconexão por lentidão
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean offer(Set<DataWithMediaType> frame) {
+            if (closed.get()) return true; // já removido; nada a fazer
+            if (!pending.offer(frame)) return false;
+            schedule();
+            return true;
+        }
+
+        /**
+         * Remove o assinante; retorna true só na primeira chamada. Sem {@code byContainer}, o
+         * emitter é concluído pela thread de escrita, depois de um eventual envio em andamento.
+         */
+        boolean close(boolean byContainer) {
+            if (byContainer) completed.set(true);
+            subscribers.remove(this);
+            if (!closed.compareAndSet(false, true)) return false;
+            pending.clear();
+            schedule();
+            return true;
+        }
+
+        /**
+         * Desconecta por lentidão: o emitter é concluído com erro, fechando a resposta.
+         */
+        boolean fail(String reason) {
+            if (closed.get()) return false;
+            failure = reason;
+            return close(false);
+        }
+
+        // Libera a thread presa no socket; o envio falha e a thread conclui o emitter
+        void interruptSend() {
+            Thread t = writer;
+            if (t != null && sendingSince != 0) {
+                t.interrupt();
+            }
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false); // encerrando
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> frame;
+                while (!closed.get() && (frame = pending.poll()) != null) {
+                    writer = Thread.currentThread();
+                    sendingSince = System.nanoTime();
+                    try {
+                        emitter.send(frame);
+                    } catch (Exception e) {
+                        if (failure == null) {
+                            // Cliente desconectado: o container conclui o emitter
+                            log.debug("Dropping ranking stream subscriber: {}", e.getMessage());
+                            completed.set(true);
+                            close(true);
+                        }
+                    } finally {
+                        sendingSince = 0;
+                        writer = null;
+                    }
+                }
+                if (closed.get() && completed.compareAndSet(false, true)) {
+                    Thread.interrupted(); // interrupção de interruptSend já cumpriu o papel
+                    String reason = failure;
+                    if (reason != null) {
+                        emitter.completeWithError(new IOException("Ranking stream subscriber too slow: " + reason));
+                    } else {
+                        emitter.complete();
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // Frame enfileirado entre o último poll e a liberação do flag
+                if (!closed.get() ? !pending.isEmpty() : !completed.get()) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Diferença entre dois rankings: entradas novas ou com posição/hits diferentes e códigos
+     * ausentes do ranking novo.
+     */
+    static RankingDelta diff(List<RankingItem> previous, List<RankingItem> current, long version) {
+        Map<String, RankingPosition> before = new HashMap<>(previous.size() * 2);
+        List<RankingPosition> old = positions(previous);
+        for (RankingPosition p : old) before.put(p.code(), p);
+        List<RankingPosition> changed = new ArrayList<>();
+        Set<String> present = new LinkedHashSet<>();
+        for (RankingPosition p : positions(current)) {
+            present.add(p.code());
+            RankingPosition b = before.get(p.code());
+            if (b == null || b.position() != p.position() || !Objects.equals(b.hits(), p.hits())) {
+                changed.add(p);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (RankingPosition p : old) {
+            if (!present.contains(p.code())) removed.add(p.code());
+        }
+        return new RankingDelta(version, List.copyOf(changed), List.copyOf(removed));
+    }
+
+    private static List<RankingPosition> positions(List<RankingItem> items) {
+        List<RankingPosition> result = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            RankingItem item = items.get(i);
+            result.add(new RankingPosition(i + 1, item.code(), item.originalUrl(), item.hits()));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+        try {
+            sender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close(false);
+        }
+        if (writers != null) {
+            writers.shutdown();
+            try {
+                writers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,145 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.repositories.ShortUrlDailyHitsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Versões usadas como ETag nos GETs condicionais de ranking e estatísticas. O ETag é
+ * calculado sem montar a resposta: com If-None-Match igual, o controller devolve 304 sem
+ * montar o ranking nem os resumos.
+ * <ul>
+ *   <li>Ranking: {@link TopRankingCache#version()} mais um identificador desta instância, já
+ *   que cada instância mantém seu próprio Top-N em memória.</li>
+ *   <li>Resumo global: apenas dados — a marca d'água do rollup diário (soma de todos os hits)
+ *   e o dia UTC (a janela de 7 dias avança à meia-noite). O mesmo conteúdo gera o mesmo ETag
+ *   em qualquer instância e em qualquer momento. A marca d'água fica em memória e é relida
+ *   quando esta instância grava acessos ou, no máximo, a cada
+ *   {@code http-cache.stats.watermark-refresh-ms}, o que limita a defasagem causada por
+ *   gravações de outras instâncias.</li>
+ *   <li>Resumo por código: o código, o total de acessos do link e o dia UTC.</li>
+ * </ul>
+ */
+@Component
+public class ResponseVersions {
+
+    private final TopRankingCache topRankingCache;
+    private final ShortUrlDailyHitsRepository dailyHitsRepository;
+    private final String instanceId = Long.toString(UUID.randomUUID().getMostSignificantBits() >>> 1, 36);
+    private final LongAdder statsGeneration = new LongAdder();
+    private final ReentrantLock watermarkLock = new ReentrantLock();
+    private volatile Watermark watermark;
+
+    @Value("${http-cache.ranking.max-age-seconds:1}")
+    private long rankingMaxAgeSeconds;
+
+    @Value("${http-cache.stats.max-age-seconds:5}")
+    private long statsMaxAgeSeconds;
+
+    @Value("${http-cache.stats.watermark-refresh-ms:1000}")
+    private long watermarkRefreshMs;
+
+    public ResponseVersions(TopRankingCache topRankingCache, ShortUrlDailyHitsRepository dailyHitsRepository) {
+        this.topRankingCache = topRankingCache;
+        this.dailyHitsRepository = dailyHitsRepository;
+    }
+
+    public String rankingETag() {
+        return "\"r-" + instanceId + "-" + topRankingCache.version() + "\"";
+    }
+
+    /**
+     * Chamado após o commit de acessos ou de alterações no rollup diário.
+     */
+    public void statsChanged() {
+        statsGeneration.increment();
+    }
+
+    /**
+     * ETag atual do resumo global, a partir da marca d'água em memória. Só consulta o banco
+     * (uma soma no rollup) quando a marca está vencida; com outra thread relendo, devolve o
+     * valor anterior em vez de esperar.
+     */
+    public String statsETag() {
+        long day = today();
+        Watermark current = watermark;
+        if (current == null || isStale(current, day)) {
+            if (current == null) {
+                watermarkLock.lock();
+            } else if (!watermarkLock.tryLock()) {
+                return statsETag(current.totalHits(), current.day());
+            }
+            try {
+                current = watermark;
+                if (current == null || isStale(current, day)) {
+                    current = readWatermark(day);
+                }
+            } finally {
+                watermarkLock.unlock();
+            }
+        }
+        return statsETag(current.totalHits(), current.day());
+    }
+
+    /**
+     * ETag de um resumo global já calculado com {@code totalHits}; aproveita o valor como
+     * marca d'água para as próximas requisições.
+     */
+    public String statsETag(long totalHits) {
+        long day = today();
+        long generation = statsGeneration.sum();
+        Watermark current = watermark;
+        if (current == null || current.generation() <= generation) {
+            watermark = new Watermark(totalHits, day, generation, System.currentTimeMillis());
+        }
+        return statsETag(totalHits, day);
+    }
+
+    /**
+     * ETag do resumo de um código: muda com o total de acessos do link e com o dia UTC.
+     */
+    public String statsCodeETag(String code, long totalHits) {
+        return "\"c-" + code + "-" + totalHits + "-" + today() + "\"";
+    }
+
+    public CacheControl rankingCacheControl() {
+        return CacheControl.maxAge(Duration.ofSeconds(rankingMaxAgeSeconds)).cachePublic();
+    }
+
+    public CacheControl statsCacheControl() {
+        return CacheControl.maxAge(Duration.ofSeconds(statsMaxAgeSeconds)).cachePublic();
+    }
+
+    private boolean isStale(Watermark current, long day) {
+        return current.day() != day
+                || current.generation() != statsGeneration.sum()
+                || System.currentTimeMillis() - current.readAt() >= watermarkRefreshMs;
+    }
+
+    private Watermark readWatermark(long day) {
+        // A geração é lida antes da soma: uma gravação concorrente deixa a marca vencida
+        long generation = statsGeneration.sum();
+        Watermark fresh = new Watermark(dailyHitsRepository.sumAllHits(), day, generation, System.currentTimeMillis());
+        watermark = fresh;
+        return fresh;
+    }
+
+    private static String statsETag(long totalHits, long day) {
+        return "\"s-" + totalHits + "-" + day + "\"";
+    }
+
+    private static long today() {
+        return LocalDate.now(ZoneOffset.UTC).toEpochDay();
+    }
+
+    private record Watermark(long totalHits, long day, long generation, long readAt) {
+    }
+}
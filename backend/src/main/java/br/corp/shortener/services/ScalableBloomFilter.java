@@ -0,0 +1,137 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.UrlHash;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtro de Bloom escalável e thread-safe (apenas inserção).
+ * Quando o estágio atual atinge a capacidade, um novo estágio é criado com o dobro da
+ * capacidade e metade da taxa de falso positivo, mantendo a taxa total abaixo do alvo.
+ * "Não contém" é definitivo; "pode conter" exige confirmação na fonte de verdade.
+ */
+final class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private final ReentrantLock growLock = new ReentrantLock();
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity deve ser positivo");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) throw new IllegalArgumentException("falsePositiveRate deve estar em (0,1)");
+        // Série geométrica: p0 * (1 + r + r^2 + ...) = p0 / (1 - r) <= falsePositiveRate
+        stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    void add(String value) {
+        if (value == null) return;
+        long hash = UrlHash.of(value);
+        Stage current = stages.get(stages.size() - 1);
+        if (current.isFull()) {
+            current = grow(current);
+        }
+        current.put(hash);
+    }
+
+    boolean mightContain(String value) {
+        if (value == null) return false;
+        long hash = UrlHash.of(value);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) return true;
+        }
+        return false;
+    }
+
+    long approximateCount() {
+        long total = 0;
+        for (Stage stage : stages) total += stage.count.get();
+        return total;
+    }
+
+    int stageCount() {
+        return stages.size();
+    }
+
+    long bitSize() {
+        long total = 0;
+        for (Stage stage : stages) total += stage.numBits;
+        return total;
+    }
+
+    private Stage grow(Stage full) {
+        growLock.lock();
+        try {
+            Stage last = stages.get(stages.size() - 1);
+            if (last != full) {
+                // Outro thread já criou o próximo estágio
+                return last;
+            }
+            Stage next = new Stage(full.capacity * GROWTH_FACTOR, full.falsePositiveRate * TIGHTENING_RATIO);
+            stages.add(next);
+            return next;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private static final class Stage {
+        final long capacity;
+        final double falsePositiveRate;
+        final long numBits;
+        final int numHashes;
+        final AtomicLongArray words;
+        final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.numBits = Math.max(64, ((bits + 63) / 64) * 64);
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * ln2));
+            this.words = new AtomicLongArray(Math.toIntExact(numBits / 64));
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        void put(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long bit = index(h1, h2, i);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) break;
+                } while (!words.compareAndSet(word, current, current | mask));
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long bit = index(h1, h2, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // Double hashing (Kirsch-Mitzenmacher): g_i(x) = h1 + i * h2
+        private long index(int h1, int h2, int i) {
+            long combined = h1 + (long) i * h2;
+            return (combined & Long.MAX_VALUE) % numBits;
+        }
+    }
+}
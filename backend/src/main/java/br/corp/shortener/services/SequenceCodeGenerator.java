@@ -0,0 +1,138 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.repositories.ShortUrlRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Geração por blocos de sequência: cada instância reserva faixas de BLOCK_SIZE números
+ * na sequência short_code_seq e mapeia cada número por uma permutação bijetiva com chave
+ * (rede de Feistel + cycle-walking sobre 62^5) para um código base62 não adivinhável.
+ * Códigos são únicos por construção, sem checagem de existência nem retentativas.
+ */
+@Component
+@ConditionalOnProperty(name = "code-generator.strategy", havingValue = "sequence")
+public class SequenceCodeGenerator implements CodeGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceCodeGenerator.class);
+
+    // Deve coincidir com o INCREMENT BY de short_code_seq (V4__short_code_sequence.sql)
+    static final int BLOCK_SIZE = 1000;
+
+    // 62^5 códigos possíveis
+    static final long KEYSPACE = 916_132_832L;
+
+    // Domínio da rede de Feistel: 2^30 >= 62^5, em duas metades de 15 bits
+    private static final int HALF_BITS = 15;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private static final String DEFAULT_SECRET = "change-me";
+
+    private final ShortUrlRepository shortUrlRepository;
+    private final long[] roundKeys;
+
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private long next;
+    private long end;
+
+    public SequenceCodeGenerator(ShortUrlRepository shortUrlRepository,
+                                 @Value("${code-generator.sequence.secret:" + DEFAULT_SECRET + "}") String secret) {
+        this.shortUrlRepository = shortUrlRepository;
+        this.roundKeys = deriveRoundKeys(secret);
+        if (DEFAULT_SECRET.equals(secret)) {
+            log.warn("code-generator.sequence.secret is using the default value; generated codes are predictable");
+        }
+    }
+
+    @Override
+    public String nextCode() {
+        long n;
+        leaseLock.lock();
+        try {
+            if (next >= end) {
+                long start = shortUrlRepository.nextCodeBlock();
+                next = start;
+                end = start + BLOCK_SIZE;
+                log.debug("Leased code block [{}, {})", start, end);
+            }
+            n = next++;
+        } finally {
+            leaseLock.unlock();
+        }
+        if (n >= KEYSPACE) {
+            throw new IllegalStateException("Espaço de códigos esgotado");
+        }
+        return encode(permute(n));
+    }
+
+    @Override
+    public boolean requiresExistenceCheck() {
+        return false;
+    }
+
+    /**
+     * Permutação bijetiva de [0, 62^5): Feistel sobre 2^30 com cycle-walking até cair no domínio.
+     */
+    long permute(long n) {
+        long x = n;
+        do {
+            x = feistel(x);
+        } while (x >= KEYSPACE);
+        return x;
+    }
+
+    private long feistel(long x) {
+        long left = x >>> HALF_BITS;
+        long right = x & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long tmp = right;
+            right = left ^ round(right, roundKeys[i]);
+            left = tmp;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static long round(long value, long key) {
+        long h = (value + 0x9E3779B97F4A7C15L) ^ key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h & HALF_MASK;
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[CODE_LENGTH];
+        long v = value;
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (v % ALPHABET.length()));
+            v /= ALPHABET.length();
+        }
+        return new String(chars);
+    }
+
+    private static long[] deriveRoundKeys(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(digest);
+            long[] keys = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                keys[i] = buffer.getLong();
+            }
+            return keys;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
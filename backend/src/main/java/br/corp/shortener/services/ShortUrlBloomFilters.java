@@ -0,0 +1,135 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.repositories.ShortUrlKeys;
+import br.corp.shortener.repositories.ShortUrlRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Filtro de Bloom sobre os códigos já existentes.
+ * Um "não contém" permite pular a consulta de existência do código no banco em shorten();
+ * um código criado por outra instância ainda fora do filtro esbarra na constraint única de code.
+ * Não há filtro de URLs: a idempotência por URL não tem constraint no banco, então um
+ * "não contém" local não prova que outra instância não criou o link e a consulta é mantida.
+ * Reconstruídos em streaming a partir da tabela após o startup e atualizados após cada commit;
+ * uma varredura incremental periódica incorpora links criados por outras instâncias.
+ * Enquanto a carga inicial não termina, todas as consultas respondem "pode conter".
+ */
+@Component
+public class ShortUrlBloomFilters {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortUrlBloomFilters.class);
+
+    // Sobreposição da varredura incremental para cobrir commits tardios e diferença de relógio
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final ShortUrlRepository shortUrlRepository;
+    private final TransactionTemplate readOnlyTx;
+
+    private final ScalableBloomFilter codes;
+
+    @Value("${bloom-filter.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean ready;
+    private final AtomicReference<Instant> watermark = new AtomicReference<>(Instant.EPOCH);
+
+    public ShortUrlBloomFilters(ShortUrlRepository shortUrlRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${bloom-filter.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${bloom-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.shortUrlRepository = shortUrlRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.codes = new ScalableBloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) {
+            log.info("Bloom filters disabled; shorten() will always probe the database");
+            return;
+        }
+        Thread loader = new Thread(this::rebuild, "bloom-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    void rebuild() {
+        long started = System.nanoTime();
+        try {
+            long loaded = readOnlyTx.execute(status -> {
+                try (Stream<ShortUrlKeys> keys = shortUrlRepository.streamAllKeys()) {
+                    return load(keys);
+                }
+            });
+            ready = true;
+            log.info("Bloom filters loaded: rows={}, codeStages={}, tookMs={}",
+                    loaded, codes.stageCount(), (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Failed to load bloom filters; database probes remain enabled: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bloom-filter.refresh-interval-ms:30000}",
+            initialDelayString = "${bloom-filter.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!enabled || !ready) return;
+        Instant since = watermark.get().minus(REFRESH_OVERLAP);
+        try {
+            long loaded = readOnlyTx.execute(status -> {
+                try (Stream<ShortUrlKeys> keys = shortUrlRepository.streamKeysCreatedSince(since)) {
+                    return load(keys);
+                }
+            });
+            log.debug("Bloom filters refreshed: rows={} since={}", loaded, since);
+        } catch (Exception e) {
+            log.warn("Failed to refresh bloom filters: {}", e.getMessage());
+        }
+    }
+
+    private long load(Stream<ShortUrlKeys> keys) {
+        AtomicLong count = new AtomicLong();
+        keys.forEach(k -> {
+            codes.add(k.getCode());
+            advanceWatermark(k.getCreatedAt());
+            count.incrementAndGet();
+        });
+        return count.get();
+    }
+
+    private void advanceWatermark(Instant createdAt) {
+        if (createdAt == null) return;
+        watermark.accumulateAndGet(createdAt, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * false somente quando o código certamente não existe.
+     */
+    public boolean mightContainCode(String code) {
+        return !enabled || !ready || codes.mightContain(code);
+    }
+
+    public void add(ShortUrl su) {
+        if (su == null) return;
+        codes.add(su.getCode());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+}
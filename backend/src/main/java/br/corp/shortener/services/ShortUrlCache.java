@@ -1,55 +1,217 @@
 package br.corp.shortener.services;
 
 import br.corp.shortener.entities.ShortUrl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Cache simples para idempotência de ShortUrl.
- * Mantém índices por código, por URL e pelo par (code|originalUrl).
+ * Cache limitado para idempotência de ShortUrl.
+ * O índice primário (por código) é um cache Caffeine com admissão/evicção W-TinyLFU,
+ * limitado por número de entradas ou por peso aproximado em bytes.
+ * O índice por URL guarda apenas o código e é limpo quando a entrada primária sai;
+ * o índice pelo par (code|originalUrl) é derivado do primário.
  */
 @Component
 public class ShortUrlCache {
 
     private static final Logger log = LoggerFactory.getLogger(ShortUrlCache.class);
 
-    private final ConcurrentMap<String, ShortUrl> byCode = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, ShortUrl> byUrl = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, ShortUrl> byPair = new ConcurrentHashMap<>();
+    // Custo fixo aproximado por entrada (entidade, nós do Caffeine e do índice por URL)
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Cache<String, ShortUrl> byCode;
+    private final ConcurrentMap<String, String> codeByUrl = new ConcurrentHashMap<>();
+
+    // Contadores da leitura por código (caminho do redirecionamento)
+    private final LongAdder codeHits = new LongAdder();
+    private final LongAdder codeMisses = new LongAdder();
+
+    // Contadores das leituras de idempotência em POST /shorten
+    private final LongAdder urlHits = new LongAdder();
+    private final LongAdder urlMisses = new LongAdder();
+    private final LongAdder pairHits = new LongAdder();
+    private final LongAdder pairMisses = new LongAdder();
+
+    @Autowired
+    public ShortUrlCache(@Value("${short-url-cache.maximum-size:100000}") long maximumSize,
+                         @Value("${short-url-cache.maximum-weight-bytes:0}") long maximumWeightBytes,
+                         @Value("${short-url-cache.expire-after-access-ms:0}") long expireAfterAccessMs) {
+        this(maximumSize, maximumWeightBytes, expireAfterAccessMs, ForkJoinPool.commonPool());
+    }
+
+    ShortUrlCache(long maximumSize, long maximumWeightBytes, long expireAfterAccessMs, Executor executor) {
+        Caffeine<String, ShortUrl> builder = Caffeine.newBuilder()
+                .executor(executor)
+                .removalListener(this::onRemoval);
+        if (maximumWeightBytes > 0) {
+            builder.maximumWeight(maximumWeightBytes).weigher((String code, ShortUrl su) -> weigh(su));
+        } else {
+            builder.maximumSize(maximumSize);
+        }
+        if (expireAfterAccessMs > 0) {
+            builder.expireAfterAccess(Duration.ofMillis(expireAfterAccessMs));
+        }
+        this.byCode = builder.build();
+        log.info("ShortUrl cache configured: maximumSize={}, maximumWeightBytes={}, expireAfterAccessMs={}",
+                maximumWeightBytes > 0 ? "-" : maximumSize, maximumWeightBytes, expireAfterAccessMs);
+    }
+
+    // Publica hits/misses de cada índice no Actuator, quando houver MeterRegistry
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        lookups(registry, "byCode", "hit", codeHits);
+        lookups(registry, "byCode", "miss", codeMisses);
+        lookups(registry, "byUrl", "hit", urlHits);
+        lookups(registry, "byUrl", "miss", urlMisses);
+        lookups(registry, "byPair", "hit", pairHits);
+        lookups(registry, "byPair", "miss", pairMisses);
+        Gauge.builder("shortener.cache.size", byCode, Cache::estimatedSize)
+                .tag("cache", "shortUrl")
+                .register(registry);
+    }
+
+    private static void lookups(MeterRegistry registry, String index, String result, LongAdder counter) {
+        FunctionCounter.builder("shortener.cache.lookups", counter, LongAdder::sum)
+                .tag("cache", "shortUrl").tag("index", index).tag("result", result)
+                .register(registry);
+    }
+
+    public Optional<ShortUrl> getByCode(String code) {
+        if (code == null) return Optional.empty();
+        ShortUrl su = byCode.getIfPresent(code);
+        if (su != null) {
+            codeHits.increment();
+        } else {
+            codeMisses.increment();
+        }
+        return Optional.ofNullable(su);
+    }
+
+    public long codeHitCount() {
+        return codeHits.sum();
+    }
+
+    public long codeMissCount() {
+        return codeMisses.sum();
+    }
 
     public Optional<ShortUrl> getByPair(String code, String originalUrl) {
         if (code == null || originalUrl == null) return Optional.empty();
-        return Optional.ofNullable(byPair.get(pairKey(code, originalUrl)));
+        ShortUrl su = byCode.getIfPresent(code);
+        if (su == null || !originalUrl.equals(su.getOriginalUrl())) {
+            pairMisses.increment();
+            return Optional.empty();
+        }
+        pairHits.increment();
+        return Optional.of(su);
     }
 
     public Optional<ShortUrl> getByUrl(String originalUrl) {
         if (originalUrl == null) return Optional.empty();
-        return Optional.ofNullable(byUrl.get(originalUrl));
+        String code = codeByUrl.get(originalUrl);
+        if (code == null) {
+            urlMisses.increment();
+            return Optional.empty();
+        }
+        ShortUrl su = byCode.getIfPresent(code);
+        if (su == null || !originalUrl.equals(su.getOriginalUrl())) {
+            // Entrada primária já evictada: remove o apontamento órfão
+            codeByUrl.remove(originalUrl, code);
+            urlMisses.increment();
+            return Optional.empty();
+        }
+        urlHits.increment();
+        return Optional.of(su);
     }
 
     public boolean containsCode(String code) {
         if (code == null) return false;
-        return byCode.containsKey(code);
+        return byCode.asMap().containsKey(code);
     }
 
+    /**
+     * Indexa a entrada por código e por URL. O índice por URL só passa a apontar para este
+     * código se ele for o mais recente da URL entre os cacheados, como a consulta ao banco
+     * ({@code findFirstByOriginalUrlOrderByCreatedAtDesc}) que ele substitui.
+     */
     public ShortUrl put(ShortUrl su) {
         if (su == null) return null;
         try {
+            // Índice secundário antes do primário: se a entrada for rejeitada/evictada,
+            // o listener de remoção limpa o apontamento
+            codeByUrl.compute(su.getOriginalUrl(), (url, current) ->
+                    current == null || current.equals(su.getCode()) || !olderThanCached(su, current) ? su.getCode() : current);
             byCode.put(su.getCode(), su);
-            byUrl.put(su.getOriginalUrl(), su);
-            byPair.put(pairKey(su.getCode(), su.getOriginalUrl()), su);
         } catch (Exception e) {
             log.debug("Failed to put ShortUrl in cache: {}", e.getMessage());
         }
         return su;
     }
 
-    private String pairKey(String code, String originalUrl) {
-        return code + "|" + originalUrl;
+    /**
+     * Indexa a entrada só por código (leitura do redirecionamento): um código antigo ou
+     * customizado lido pelo caminho do redirect não muda o link devolvido por URL.
+     */
+    public ShortUrl putByCode(ShortUrl su) {
+        if (su == null) return null;
+        try {
+            byCode.put(su.getCode(), su);
+        } catch (Exception e) {
+            log.debug("Failed to put ShortUrl in cache: {}", e.getMessage());
+        }
+        return su;
+    }
+
+    public void invalidate(String code) {
+        if (code == null) return;
+        byCode.invalidate(code);
+    }
+
+    public long estimatedSize() {
+        return byCode.estimatedSize();
+    }
+
+    int urlIndexSize() {
+        return codeByUrl.size();
+    }
+
+    void cleanUp() {
+        byCode.cleanUp();
+    }
+
+    private void onRemoval(String code, ShortUrl su, RemovalCause cause) {
+        // Substituição mantém o mesmo código -> mesma URL; o índice secundário continua válido
+        if (code == null || su == null || cause == RemovalCause.REPLACED) return;
+        codeByUrl.remove(su.getOriginalUrl(), code);
+    }
+
+    // Leitura sem registrar acesso (não distorce a admissão W-TinyLFU); entrada já evictada não tem precedência
+    private boolean olderThanCached(ShortUrl su, String cachedCode) {
+        ShortUrl cached = byCode.policy().getIfPresentQuietly(cachedCode);
+        return cached != null && su.getCreatedAt() != null && cached.getCreatedAt() != null
+                && su.getCreatedAt().isBefore(cached.getCreatedAt());
+    }
+
+    private static int weigh(ShortUrl su) {
+        int url = su.getOriginalUrl() != null ? su.getOriginalUrl().length() : 0;
+        int code = su.getCode() != null ? su.getCode().length() : 0;
+        return ENTRY_OVERHEAD_BYTES + url + code;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.ShortUrl;
+
+/**
+ * Resultado de {@link UrlShortenerService#shortenWithOutcome(String, String)}: o link e se
+ * ele foi criado pela chamada ou já existia.
+ */
+public record ShortenOutcome(ShortUrl shortUrl, boolean created) {
+}
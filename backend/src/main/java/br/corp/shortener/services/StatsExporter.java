@@ -0,0 +1,135 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.StatsResponse;
+import br.corp.shortener.exceptions.InvalidExportFormatException;
+import br.corp.shortener.repositories.ShortUrlRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Exporta as estatísticas de todos os links em streaming (NDJSON ou CSV).
+ * As linhas vêm de um cursor no banco (Stream JPA com fetch size, transação somente leitura)
+ * e são escritas direto na saída, com memória constante independentemente do tamanho da tabela.
+ */
+@Component
+public class StatsExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsExporter.class);
+
+    // Flush periódico para o cliente começar a receber antes do fim da exportação
+    private static final int FLUSH_EVERY = 1000;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null) return NDJSON;
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidExportFormatException(value);
+            }
+        }
+    }
+
+    private final ShortUrlRepository shortUrlRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    public StatsExporter(ShortUrlRepository shortUrlRepository,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager) {
+        this.shortUrlRepository = shortUrlRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * Escreve todas as linhas no formato pedido e retorna a quantidade exportada.
+     */
+    public long export(Format format, OutputStream out) {
+        long started = System.nanoTime();
+        Long rows = readOnlyTx.execute(status -> {
+            try (Stream<StatsResponse> stats = shortUrlRepository.streamAllStats()) {
+                return format == Format.CSV ? writeCsv(stats.iterator(), out) : writeNdjson(stats.iterator(), out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        long exported = rows != null ? rows : 0;
+        log.info("Stats export finished: format={}, rows={}, tookMs={}", format, exported, (System.nanoTime() - started) / 1_000_000);
+        return exported;
+    }
+
+    private long writeNdjson(Iterator<StatsResponse> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            while (rows.hasNext()) {
+                writer.write(rows.next());
+                if (++count % FLUSH_EVERY == 0) writer.flush();
+            }
+            if (count > 0) out.write('\n');
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<StatsResponse> rows, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("code,originalUrl,hits\n");
+        while (rows.hasNext()) {
+            StatsResponse row = rows.next();
+            writer.write(csv(row.code()));
+            writer.write(',');
+            writer.write(csv(row.originalUrl()));
+            writer.write(',');
+            writer.write(String.valueOf(row.hits()));
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) writer.flush();
+        }
+        writer.flush();
+        return count;
+    }
+
+    // RFC 4180: aspas quando houver separador, aspas ou quebra de linha
+    static String csv(String value) {
+        if (value == null) return "";
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
@@ -2,36 +2,72 @@ package br.corp.shortener.services;
 
 import br.corp.shortener.dto.RankingItem;
 import br.corp.shortener.entities.ShortUrl;
-import br.corp.shortener.repositories.ShortUrlAccessRepository;
+import br.corp.shortener.jfr.RankingEvictionEvent;
+import br.corp.shortener.jfr.RankingReloadEvent;
+import br.corp.shortener.repositories.CodeHits;
 import br.corp.shortener.repositories.ShortUrlRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Cache do Top-N do ranking, seguro para acesso concorrente.
+ * <ul>
+ *   <li>Hits de membros: contador atômico por código; o índice ordenado (skip list) é
+ *   atualizado em O(log n) sem lock.</li>
+ *   <li>Entrada/saída do Top-N: serializada por lock, com o menor membro obtido pelo
+ *   início do índice em vez de varrer todas as entradas.</li>
+ *   <li>Leitura ({@link #getTop()}): snapshot imutável publicado e reconstruído apenas
+ *   quando houve alteração desde a última leitura.</li>
+ * </ul>
+ * O índice pode conter chaves obsoletas por instantes (entre a publicação da chave nova
+ * e a remoção da antiga); toda leitura valida a chave contra o slot atual.
+ * <p>
+ * Códigos fora do Top-N são contados por um Count-Min Sketch semeado com as contagens do
+ * banco em cada recarga; a entrada no Top-N é decidida pela estimativa, sem consultar o banco.
+ * Como a estimativa pode exceder o valor real (até epsilon * total de acessos), uma
+ * reconciliação periódica recarrega as contagens exatas.
+ */
 @Component
 public class TopRankingCache {
 
     private static final Logger log = LoggerFactory.getLogger(TopRankingCache.class);
 
     private final ShortUrlRepository shortUrlRepository;
-    private final ShortUrlAccessRepository accessRepository;
-
-    // Mantém mapping code -> hits para os TOP N (Top-100)
-    private final Map<String, Long> hitsByCode = new LinkedHashMap<>();
-    // Mantém a entidade ShortUrl para códigos do TOP N
-    private final Map<String, ShortUrl> entityByCode = new LinkedHashMap<>();
+    private final TransactionTemplate readOnlyTx;
+    private final double sketchEpsilon;
+    private final double sketchDelta;
 
     private static final int TOP_LIMIT = 100;
 
@@ -40,9 +76,50 @@ public class TopRankingCache {
 
     private volatile Instant lastReloadAt;
 
-    public TopRankingCache(ShortUrlRepository shortUrlRepository, ShortUrlAccessRepository accessRepository) {
+    // Estado atual (membros + índice); trocado por inteiro a cada recarga do banco
+    private volatile State state;
+
+    // Serializa mudanças de membros do Top-N e a troca de estado de uma recarga
+    private final ReentrantLock membershipLock = new ReentrantLock();
+
+    // Serializa recargas (leituras do banco feitas fora do membershipLock)
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // Incrementado a cada alteração visível no ranking; invalida o snapshot publicado
+    private final LongAdder modifications = new LongAdder();
+    private final AtomicLong slotIds = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(-1, List.of());
+
+    // Leituras por código no caminho do redirecionamento (membro do Top-N ou não)
+    private final LongAdder entityHits = new LongAdder();
+    private final LongAdder entityMisses = new LongAdder();
+    private MeterRegistry meterRegistry; // opcional
+
+    public TopRankingCache(ShortUrlRepository shortUrlRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ranking.sketch.epsilon:0.0001}") double sketchEpsilon,
+                           @Value("${ranking.sketch.delta:0.01}") double sketchDelta) {
         this.shortUrlRepository = shortUrlRepository;
-        this.accessRepository = accessRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.sketchEpsilon = sketchEpsilon;
+        this.sketchDelta = sketchDelta;
+        this.state = newState();
+    }
+
+    // Injetado antes do @PostConstruct: a carga inicial já é cronometrada
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        FunctionCounter.builder("shortener.cache.lookups", entityHits, LongAdder::sum)
+                .tag("cache", "topRanking").tag("index", "byCode").tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("shortener.cache.lookups", entityMisses, LongAdder::sum)
+                .tag("cache", "topRanking").tag("index", "byCode").tag("result", "miss")
+                .register(registry);
+        Gauge.builder("shortener.cache.size", this, c -> c.state.slots.size())
+                .tag("cache", "topRanking")
+                .register(registry);
     }
 
     @PostConstruct
@@ -50,107 +127,341 @@ public class TopRankingCache {
         reloadFromDatabase();
     }
 
-    // Refresh agendado removido: o cache é pré-carregado no startup
+    /**
+     * Reconciliação periódica: substitui estimativas do sketch pelas contagens exatas do banco.
+     */
+    @Scheduled(fixedDelayString = "${ranking.reconcile-interval-ms:300000}",
+            initialDelayString = "${ranking.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        reloadFromDatabase();
+    }
 
+    /**
+     * Lê o Top-N (ORDER BY + LIMIT no banco, entidades em uma consulta IN) e as contagens do
+     * sketch fora do {@code membershipLock}; sob o lock só troca o estado. Os acessos recebidos
+     * durante as leituras ficam registrados no estado anterior e são reaplicados no novo.
+     * As contagens são lidas em streaming, direto para o sketch. Se a leitura falhar, o estado
+     * atual é mantido (Top-N e sketch); a próxima reconciliação tenta de novo.
+     */
     private void reloadFromDatabase() {
+        reloadLock.lock();
+        long started = System.nanoTime();
+        String outcome = "success";
+        RankingReloadEvent event = new RankingReloadEvent();
+        event.begin();
+        State previous = state;
+        previous.arrivals = new ConcurrentHashMap<>();
         try {
             log.info("Refreshing top-{} ranking cache from database", TOP_LIMIT);
-            List<RankingItem> all = shortUrlRepository.findRanking();
-            List<RankingItem> topN = all.stream()
-                    .sorted(Comparator.comparingLong(r -> -r.hits()))
-                    .limit(TOP_LIMIT)
-                    .collect(Collectors.toList());
-            hitsByCode.clear();
-            entityByCode.clear();
-            for (RankingItem item : topN) {
-                try {
-                    ShortUrl su = shortUrlRepository.findByCode(item.code()).orElse(null);
-                    if (su != null) {
-                        hitsByCode.put(item.code(), item.hits());
-                        entityByCode.put(item.code(), su);
-                    } else {
-                        log.debug("Top refresh: skipping code {} due to missing entity", item.code());
+            List<RankingItem> topN = shortUrlRepository.findTopRanking(PageRequest.of(0, TOP_LIMIT));
+            Map<String, ShortUrl> entities = new HashMap<>();
+            if (!topN.isEmpty()) {
+                List<String> codes = topN.stream().map(RankingItem::code).collect(Collectors.toList());
+                for (ShortUrl su : shortUrlRepository.findByCodeIn(codes)) {
+                    entities.put(su.getCode(), su);
+                }
+            }
+            State next = newState();
+            // Semeia o sketch com as contagens exatas de todos os códigos
+            Long links = readOnlyTx.execute(status -> {
+                long seeded = 0;
+                try (Stream<CodeHits> counts = shortUrlRepository.streamAllHitCounts()) {
+                    for (Iterator<CodeHits> it = counts.iterator(); it.hasNext(); seeded++) {
+                        CodeHits c = it.next();
+                        next.sketch.add(c.getCode(), c.getHits());
                     }
-                } catch (Exception e) {
-                    log.debug("Failed to load entity for code {} during refresh: {}", item.code(), e.getMessage());
+                }
+                return seeded;
+            });
+            event.links = links != null ? links : 0;
+            for (RankingItem item : topN) {
+                ShortUrl su = entities.get(item.code());
+                if (su != null) {
+                    admit(next, su, item.hits(), true);
+                } else {
+                    log.debug("Top refresh: skipping code {} due to missing entity", item.code());
                 }
             }
-            lastReloadAt = Instant.now();
-            log.info("Top-{} cache refreshed: {}", TOP_LIMIT, hitsByCode.keySet());
+            swap(previous, next);
+            event.members = next.slots.size();
+            event.success = true;
+            log.info("Top-{} cache refreshed: {}", TOP_LIMIT, next.slots.keySet());
         } catch (Exception e) {
             log.warn("Failed to refresh ranking cache: {}", e.getMessage(), e);
-            hitsByCode.clear();
-            entityByCode.clear();
+            outcome = "failure";
+            // Mantém o Top-N e o sketch atuais; só descarta os acessos registrados para a troca
             lastReloadAt = Instant.now();
+        } finally {
+            previous.arrivals = null;
+            reloadLock.unlock();
+            recordReload(outcome, System.nanoTime() - started);
+            event.commit();
         }
     }
 
+    private void swap(State previous, State next) {
+        Map<String, LongAdder> arrivals;
+        membershipLock.lock();
+        try {
+            state = next;
+            arrivals = previous.arrivals;
+            previous.arrivals = null;
+            modifications.increment();
+            lastReloadAt = Instant.now();
+        } finally {
+            membershipLock.unlock();
+        }
+        if (arrivals == null) return;
+        // Reaplica os acessos recebidos durante a leitura; só se perde um acesso em andamento no instante da troca
+        arrivals.forEach((code, adder) -> {
+            long count = adder.sum();
+            Slot slot = next.slots.get(code);
+            if (slot != null) {
+                publish(next, slot, slot.hits.addAndGet(count));
+            } else {
+                next.sketch.add(code, count);
+            }
+        });
+    }
+
+    private void recordReload(String outcome, long elapsedNanos) {
+        if (meterRegistry == null) return;
+        Timer.builder("shortener.ranking.reload")
+                .description("Recarga do Top-N a partir do banco")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
     public List<RankingItem> getTop() {
         // Recarga lazy: se o cache estiver vazio, tenta recarregar do banco
-        if (hitsByCode.isEmpty()) {
+        if (state.slots.isEmpty()) {
             Instant now = Instant.now();
             boolean canReload = (lastReloadAt == null) || Duration.between(lastReloadAt, now).toMillis() >= cooldownMs;
             if (canReload) {
                 log.info("Top ranking cache empty; lazily reloading from database (cooldown={}ms)", cooldownMs);
-                synchronized (this) {
+                reloadLock.lock();
+                try {
                     // Revalida condição após adquirir lock
-                    if (hitsByCode.isEmpty()) {
+                    if (state.slots.isEmpty()) {
                         reloadFromDatabase();
                     }
+                } finally {
+                    reloadLock.unlock();
                 }
             } else {
                 log.debug("Top ranking cache empty; skipping reload due to cooldown ({}ms)", cooldownMs);
             }
         }
-        // Retorna em ordem decrescente de hits
-        return hitsByCode.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
-                .map(e -> {
-                    ShortUrl su = entityByCode.get(e.getKey());
-                    String originalUrl = su != null ? su.getOriginalUrl() : null;
-                    return new RankingItem(e.getKey(), originalUrl, e.getValue());
-                })
-                .collect(Collectors.toCollection(ArrayList::new));
+        Snapshot current = snapshot;
+        long version = version();
+        if (current.version == version) {
+            return current.items;
+        }
+        // Versão lida antes da reconstrução: uma alteração concorrente força nova reconstrução na próxima leitura
+        List<RankingItem> items = buildTop(state);
+        snapshot = new Snapshot(version, items);
+        return items;
+    }
+
+    /**
+     * Versão monotônica do ranking; muda sempre que hits ou membros do Top-N mudam.
+     */
+    public long version() {
+        return modifications.sum();
     }
 
     public boolean containsCode(String code) {
-        return hitsByCode.containsKey(code);
+        if (code == null) return false;
+        return state.slots.containsKey(code);
     }
 
     public ShortUrl getEntity(String code) {
         if (code == null) return null;
-        return entityByCode.get(code);
+        Slot slot = state.slots.get(code);
+        if (slot == null) {
+            entityMisses.increment();
+            return null;
+        }
+        entityHits.increment();
+        return slot.entity;
     }
 
+    /**
+     * Total de hits do código no Top-N, ou null se não for membro ou se o total ainda
+     * partir de uma estimativa do sketch (o chamador deve consultar a contagem exata).
+     */
     public Long getHits(String code) {
         if (code == null) return null;
-        return hitsByCode.get(code);
+        Slot slot = state.slots.get(code);
+        return slot != null && slot.exact ? slot.hits.get() : null;
     }
 
     public void onAccess(ShortUrl su) {
         String code = su.getCode();
-        Long current = hitsByCode.get(code);
-        if (current != null) {
-            hitsByCode.put(code, current + 1);
-            // Garante que a entidade esteja disponível
-            entityByCode.putIfAbsent(code, su);
+        State s = state;
+        s.recordArrival(code);
+        Slot slot = s.slots.get(code);
+        if (slot != null) {
+            // Caminho quente: sem lock, apenas contador atômico + reindexação O(log n)
+            publish(s, slot, slot.hits.incrementAndGet());
+            return;
+        }
+        // Não está no cache: estimativa em memória, sem consultar o banco
+        long estimate = s.sketch.add(code, 1);
+        if (s.slots.size() >= TOP_LIMIT && !mayEnter(s, estimate)) {
             return;
         }
-        // Não está no cache: buscar contagem atual no banco
-        long dbCount = accessRepository.countByShortUrl(su);
-        if (hitsByCode.size() < TOP_LIMIT) {
-            hitsByCode.put(code, dbCount);
-            entityByCode.put(code, su);
-        } else {
+        membershipLock.lock();
+        try {
+            if (s != state) return; // recarregado enquanto isso: as contagens novas já vêm do banco
+            slot = s.slots.get(code);
+            if (slot != null) {
+                // Admitido por outro thread; a estimativa já inclui este acesso
+                publish(s, slot, slot.hits.accumulateAndGet(estimate, Math::max));
+                return;
+            }
+            if (s.slots.size() < TOP_LIMIT) {
+                admit(s, su, estimate, false);
+                modifications.increment();
+                return;
+            }
             // Verificar se supera o menor do top-N
-            Optional<Map.Entry<String, Long>> minEntryOpt = hitsByCode.entrySet().stream().min(Map.Entry.comparingByValue());
-            if (minEntryOpt.isPresent() && dbCount > minEntryOpt.get().getValue()) {
-                String minKey = minEntryOpt.get().getKey();
-                hitsByCode.remove(minKey);
-                entityByCode.remove(minKey);
-                hitsByCode.put(code, dbCount);
-                entityByCode.put(code, su);
+            RankKey min = s.minValidKey();
+            if (min != null && estimate > min.hits) {
+                evict(s, min);
+                admit(s, su, estimate, false);
+                modifications.increment();
+                RankingEvictionEvent event = new RankingEvictionEvent();
+                if (event.shouldCommit()) {
+                    event.evictedCode = min.slot.code;
+                    event.evictedHits = min.hits;
+                    event.admittedCode = code;
+                    event.admittedHits = estimate;
+                    event.commit();
+                }
             }
+        } finally {
+            membershipLock.unlock();
         }
     }
-}
\ No newline at end of file
+
+    // Pré-checagem sem lock: chaves obsoletas só subestimam o mínimo, então "não entra" é definitivo
+    private static boolean mayEnter(State s, long estimate) {
+        try {
+            return estimate > s.index.first().hits;
+        } catch (NoSuchElementException e) {
+            return true;
+        }
+    }
+
+    private void evict(State s, RankKey min) {
+        Slot slot = min.slot;
+        s.slots.remove(slot.code, slot);
+        s.index.remove(min);
+        // Os hits contados enquanto membro não passaram pelo sketch: repõe a diferença
+        long missing = slot.hits.get() - s.sketch.estimate(slot.code);
+        if (missing > 0) {
+            s.sketch.add(slot.code, missing);
+        }
+    }
+
+    private void admit(State s, ShortUrl su, long hits, boolean exact) {
+        Slot slot = new Slot(su, slotIds.incrementAndGet(), hits, exact);
+        s.slots.put(su.getCode(), slot);
+        s.index.add(slot.key.get());
+    }
+
+    /**
+     * Publica a chave do slot com o novo total. Chaves só avançam: se outro thread já
+     * publicou um total maior, nada a fazer.
+     */
+    private void publish(State s, Slot slot, long hits) {
+        while (true) {
+            RankKey old = slot.key.get();
+            if (old.hits >= hits) return;
+            RankKey next = new RankKey(hits, slot);
+            if (slot.key.compareAndSet(old, next)) {
+                s.index.add(next);
+                s.index.remove(old);
+                modifications.increment();
+                return;
+            }
+        }
+    }
+
+    private static List<RankingItem> buildTop(State s) {
+        // Índice já ordenado: percorre do maior para o menor, sem reordenar
+        List<RankingItem> items = new ArrayList<>(Math.min(TOP_LIMIT, s.slots.size()));
+        for (RankKey key : s.index.descendingSet()) {
+            if (!s.isValid(key)) continue;
+            items.add(new RankingItem(key.slot.code, key.slot.entity.getOriginalUrl(), key.hits));
+            if (items.size() >= TOP_LIMIT) break;
+        }
+        return List.copyOf(items);
+    }
+
+    private State newState() {
+        return new State(new CountMinSketch(sketchEpsilon, sketchDelta));
+    }
+
+    private static final class State {
+        final CountMinSketch sketch;
+        final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<>();
+        final ConcurrentSkipListSet<RankKey> index = new ConcurrentSkipListSet<>(RankKey.ORDER);
+        // Acessos recebidos enquanto uma recarga lê o banco; null fora de recargas
+        volatile ConcurrentMap<String, LongAdder> arrivals;
+
+        State(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        void recordArrival(String code) {
+            ConcurrentMap<String, LongAdder> pending = arrivals;
+            if (pending != null) {
+                pending.computeIfAbsent(code, c -> new LongAdder()).increment();
+            }
+        }
+
+        boolean isValid(RankKey key) {
+            return slots.get(key.slot.code) == key.slot && key.slot.key.get() == key;
+        }
+
+        // Menor chave válida; remove chaves obsoletas encontradas pelo caminho
+        RankKey minValidKey() {
+            for (RankKey key : index) {
+                if (isValid(key)) return key;
+                index.remove(key);
+            }
+            return null;
+        }
+    }
+
+    private static final class Slot {
+        final String code;
+        final ShortUrl entity;
+        final long id;
+        // false quando admitido pela estimativa do sketch (até a próxima reconciliação)
+        final boolean exact;
+        final AtomicLong hits;
+        final AtomicReference<RankKey> key;
+
+        Slot(ShortUrl entity, long id, long hits, boolean exact) {
+            this.code = entity.getCode();
+            this.entity = entity;
+            this.id = id;
+            this.exact = exact;
+            this.hits = new AtomicLong(hits);
+            this.key = new AtomicReference<>(new RankKey(hits, this));
+        }
+    }
+
+    // Chave imutável do índice; o id do slot desempata readmissões do mesmo código
+    private record RankKey(long hits, Slot slot) {
+        static final Comparator<RankKey> ORDER = Comparator.comparingLong(RankKey::hits)
+                .thenComparing(k -> k.slot.code)
+                .thenComparingLong(k -> k.slot.id);
+    }
+
+    private record Snapshot(long version, List<RankingItem> items) {}
+}
@@ -0,0 +1,253 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.RankingItem;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ranking "em alta" por janela deslizante (ex.: 5 min, 1 h, 1 dia), só em memória.
+ * <p>
+ * Cada janela é um anel de {@code trending.buckets} baldes de tempo; o balde do instante atual
+ * é escolhido por {@code agora / largura} e um balde vencido é substituído por CAS quando o
+ * primeiro acesso do novo intervalo chega, sem pausa global nem thread de rotação. A janela
+ * cobre os últimos {@code buckets} intervalos, então a borda tem granularidade de um balde.
+ * <p>
+ * Leitura: soma os baldes vivos e seleciona o Top-N; o resultado é publicado como snapshot e
+ * reaproveitado por {@code trending.refresh-ms}. Só um thread reconstrói por vez; os demais
+ * recebem o snapshot anterior. Nenhuma leitura consulta o banco.
+ */
+@Component
+public class TrendingRanking {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingRanking.class);
+
+    private static final int TOP_LIMIT = 100;
+
+    private final Map<Duration, Window> windows = new LinkedHashMap<>();
+
+    @Value("${trending.refresh-ms:2000}")
+    private long refreshMs;
+
+    // Limita a memória de janelas longas: ao atingir o limite, o balde descarta os códigos menos acessados
+    @Value("${trending.max-keys-per-bucket:100000}")
+    private int maxKeysPerBucket;
+
+    private final LongAdder evictedKeys = new LongAdder();
+
+    public TrendingRanking(@Value("${trending.windows:5m,1h,1d}") String windowSpec,
+                           @Value("${trending.buckets:60}") int buckets) {
+        for (String part : windowSpec.split(",")) {
+            if (part.isBlank()) continue;
+            Duration length = DurationStyle.detectAndParse(part.trim());
+            windows.put(length, new Window(length, Math.max(1, buckets)));
+        }
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("trending.windows deve ter ao menos uma janela");
+        }
+        log.info("Trending ranking windows: {} ({} buckets each)", windows.keySet(), buckets);
+    }
+
+    public List<Duration> windows() {
+        return List.copyOf(windows.keySet());
+    }
+
+    public boolean supports(Duration window) {
+        return window != null && windows.containsKey(window);
+    }
+
+    public void record(String code, String originalUrl) {
+        record(code, originalUrl, System.currentTimeMillis());
+    }
+
+    void record(String code, String originalUrl, long nowMillis) {
+        if (code == null) return;
+        for (Window w : windows.values()) {
+            w.record(code, originalUrl, nowMillis);
+        }
+    }
+
+    /**
+     * Top-N da janela (no máximo 100), do mais acessado para o menos acessado.
+     */
+    public List<RankingItem> top(Duration window, int limit) {
+        return top(window, limit, System.currentTimeMillis());
+    }
+
+    List<RankingItem> top(Duration window, int limit, long nowMillis) {
+        Window w = windows.get(window);
+        if (w == null) {
+            throw new IllegalArgumentException("Janela não configurada: " + window);
+        }
+        List<RankingItem> items = w.snapshot(nowMillis);
+        return items.size() <= limit ? items : items.subList(0, Math.max(0, limit));
+    }
+
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("shortener.trending.keys.evicted", evictedKeys, LongAdder::sum)
+                .description("Códigos descartados de um balde do ranking em alta por excederem o limite")
+                .register(registry);
+    }
+
+    public long evictedKeys() {
+        return evictedKeys.sum();
+    }
+
+    private final class Window {
+        final long bucketMillis;
+        final AtomicReferenceArray<Bucket> ring;
+        final ReentrantLock rebuildLock = new ReentrantLock();
+        volatile Snapshot snapshot; // null até a primeira leitura
+
+        Window(Duration length, int buckets) {
+            this.bucketMillis = Math.max(1, length.toMillis() / buckets);
+            this.ring = new AtomicReferenceArray<>(buckets);
+        }
+
+        void record(String code, String originalUrl, long nowMillis) {
+            long epoch = nowMillis / bucketMillis;
+            int slot = (int) (epoch % ring.length());
+            while (true) {
+                Bucket b = ring.get(slot);
+                if (b != null && b.epoch == epoch) {
+                    b.add(code, originalUrl);
+                    return;
+                }
+                if (b != null && b.epoch > epoch) {
+                    return; // acesso mais antigo que o anel inteiro: já fora da janela
+                }
+                // Intervalo novo: substitui o balde vencido; quem perder o CAS relê o vencedor
+                ring.compareAndSet(slot, b, new Bucket(epoch));
+            }
+        }
+
+        List<RankingItem> snapshot(long nowMillis) {
+            Snapshot current = snapshot;
+            if (isFresh(current, nowMillis)) {
+                return current.items;
+            }
+            // Reconstrução em andamento em outro thread: devolve o snapshot anterior
+            if (current != null && !rebuildLock.tryLock()) {
+                return current.items;
+            }
+            if (current == null) rebuildLock.lock();
+            try {
+                current = snapshot;
+                if (isFresh(current, nowMillis)) {
+                    return current.items;
+                }
+                List<RankingItem> items = build(nowMillis);
+                snapshot = new Snapshot(nowMillis, items);
+                return items;
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+
+        private boolean isFresh(Snapshot s, long nowMillis) {
+            return s != null && nowMillis >= s.builtAt && nowMillis - s.builtAt < refreshMs;
+        }
+
+        private List<RankingItem> build(long nowMillis) {
+            long currentEpoch = nowMillis / bucketMillis;
+            long oldestEpoch = currentEpoch - ring.length() + 1;
+            Map<String, long[]> totals = new HashMap<>();
+            Map<String, String> urls = new HashMap<>();
+            for (int i = 0; i < ring.length(); i++) {
+                Bucket b = ring.get(i);
+                if (b == null || b.epoch < oldestEpoch || b.epoch > currentEpoch) continue;
+                b.counts.forEach((code, counter) -> {
+                    totals.computeIfAbsent(code, c -> new long[1])[0] += counter.hits.sum();
+                    urls.putIfAbsent(code, counter.originalUrl);
+                });
+            }
+            // Min-heap de tamanho fixo: O(N log 100) em vez de ordenar todos os códigos da janela
+            Comparator<Map.Entry<String, long[]>> order = Comparator
+                    .<Map.Entry<String, long[]>>comparingLong(e -> e.getValue()[0])
+                    .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+            PriorityQueue<Map.Entry<String, long[]>> heap = new PriorityQueue<>(TOP_LIMIT + 1, order);
+            for (Map.Entry<String, long[]> e : totals.entrySet()) {
+                heap.offer(e);
+                if (heap.size() > TOP_LIMIT) heap.poll();
+            }
+            List<RankingItem> items = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                Map.Entry<String, long[]> e = heap.poll();
+                items.add(new RankingItem(e.getKey(), urls.get(e.getKey()), e.getValue()[0]));
+            }
+            Collections.reverse(items);
+            return List.copyOf(items);
+        }
+    }
+
+    private final class Bucket {
+        final long epoch;
+        final ConcurrentHashMap<String, Counter> counts = new ConcurrentHashMap<>();
+        final ReentrantLock evictionLock = new ReentrantLock();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+
+        void add(String code, String originalUrl) {
+            Counter counter = counts.get(code);
+            if (counter == null) {
+                if (counts.size() >= maxKeysPerBucket) {
+                    evictSmallest();
+                }
+                counter = counts.computeIfAbsent(code, c -> new Counter(originalUrl));
+            }
+            counter.hits.increment();
+        }
+
+        // Descarta de uma vez o 1/16 menos acessado: a ordenação é paga a cada lote de códigos novos,
+        // não a cada um, e os códigos mais acessados nunca saem para dar lugar a um novo
+        private void evictSmallest() {
+            evictionLock.lock();
+            try {
+                if (counts.size() < maxKeysPerBucket) return; // outro thread já liberou espaço
+                List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.size());
+                counts.forEach((code, counter) -> entries.add(Map.entry(code, counter.hits.sum())));
+                entries.sort(Map.Entry.comparingByValue());
+                int evict = Math.min(entries.size(), Math.max(1, maxKeysPerBucket / 16));
+                for (int i = 0; i < evict; i++) {
+                    counts.remove(entries.get(i).getKey());
+                }
+                evictedKeys.add(evict);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private static final class Counter {
+        final String originalUrl;
+        final LongAdder hits = new LongAdder();
+
+        Counter(String originalUrl) {
+            this.originalUrl = originalUrl;
+        }
+    }
+
+    private record Snapshot(long builtAt, List<RankingItem> items) {}
+}
@@ -1,70 +1,205 @@
 package br.corp.shortener.services;
 
+import br.corp.shortener.dto.DayHits;
 import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.dto.ShortenRequest;
+import br.corp.shortener.dto.StatsCursor;
+import br.corp.shortener.dto.StatsCursorPage;
 import br.corp.shortener.dto.StatsResponse;
 import br.corp.shortener.dto.StatsSummaryResponse;
 import br.corp.shortener.dto.StatsCodeSummaryResponse;
 import br.corp.shortener.entities.ShortUrl;
 import br.corp.shortener.entities.ShortUrlAccess;
 import br.corp.shortener.exceptions.DuplicateCodeException;
+import br.corp.shortener.jfr.AccessWriteEvent;
+import br.corp.shortener.jfr.CodeGenerationEvent;
+import br.corp.shortener.jfr.CodeLookupEvent;
 import br.corp.shortener.repositories.ShortUrlAccessRepository;
+import br.corp.shortener.repositories.ShortUrlDailyHitsRepository;
 import br.corp.shortener.repositories.ShortUrlRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.security.SecureRandom;
+import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 @Service
 public class UrlShortenerService {
 
-    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final int CODE_LENGTH = 5;
-    private final Random random = new SecureRandom();
-
     private static final Logger log = LoggerFactory.getLogger(UrlShortenerService.class);
 
+    // Mesma regra de ShortenRequest.code, aplicada por item no lote
+    private static final Pattern CODE_PATTERN = Pattern.compile("^[A-Za-z0-9]{5}$");
+
+    // Janela dos resumos de estatísticas (dias UTC, incluindo hoje)
+    private static final int SUMMARY_DAYS = 7;
+
     private final ShortUrlRepository shortUrlRepository;
     private final ShortUrlAccessRepository shortUrlAccessRepository;
     private final TopRankingCache topRankingCache;
+    private final ShortUrlDailyHitsRepository dailyHitsRepository;
     private ShortUrlCache shortUrlCache; // opcional
-
-    public UrlShortenerService(ShortUrlRepository shortUrlRepository, ShortUrlAccessRepository shortUrlAccessRepository, TopRankingCache topRankingCache) {
+    private AccessLogWriter accessLogWriter; // opcional
+    private NegativeCodeCache negativeCodeCache; // opcional
+    private ShortUrlBloomFilters bloomFilters; // opcional
+    private HitCounter hitCounter; // opcional
+    private TrendingRanking trendingRanking; // opcional
+    private ResponseVersions responseVersions; // opcional
+    private UrlShortenerService self; // proxy; null fora do contexto Spring (testes unitários)
+    private CodeGenerator codeGenerator = new RandomCodeGenerator();
+
+    // Geração de códigos: novas tentativas por motivo e esgotamentos (POST /shorten e lotes)
+    private final LongAdder codeRetriesCache = new LongAdder();
+    private final LongAdder codeRetriesDatabase = new LongAdder();
+    private final LongAdder codeCollisions = new LongAdder();
+    private final LongAdder codeExhausted = new LongAdder();
+
+    // Timers criados em bindMetrics; null sem MeterRegistry (testes unitários)
+    private Timer dbFallbackFound;
+    private Timer dbFallbackMissing;
+    private Timer accessWriteSync;
+
+    public UrlShortenerService(ShortUrlRepository shortUrlRepository, ShortUrlAccessRepository shortUrlAccessRepository,
+                               TopRankingCache topRankingCache, ShortUrlDailyHitsRepository dailyHitsRepository) {
         this.shortUrlRepository = shortUrlRepository;
         this.shortUrlAccessRepository = shortUrlAccessRepository;
         this.topRankingCache = topRankingCache;
+        this.dailyHitsRepository = dailyHitsRepository;
     }
 
     // Injeta cache de ShortUrl opcionalmente para não quebrar testes/unitários
-    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    @Autowired(required = false)
     public void setShortUrlCache(ShortUrlCache shortUrlCache) {
         this.shortUrlCache = shortUrlCache;
     }
 
+    @Autowired(required = false)
+    public void setNegativeCodeCache(NegativeCodeCache negativeCodeCache) {
+        this.negativeCodeCache = negativeCodeCache;
+    }
+
+    @Autowired(required = false)
+    public void setBloomFilters(ShortUrlBloomFilters bloomFilters) {
+        this.bloomFilters = bloomFilters;
+    }
+
+    // Estratégia de geração de códigos (code-generator.strategy); padrão aleatório
+    @Autowired(required = false)
+    public void setCodeGenerator(CodeGenerator codeGenerator) {
+        this.codeGenerator = codeGenerator;
+    }
+
+    // Hits ainda não gravados em hit_count por esta instância
+    @Autowired(required = false)
+    public void setHitCounter(HitCounter hitCounter) {
+        this.hitCounter = hitCounter;
+    }
+
+    // Ranking por janela deslizante (GET /ranking/trending)
+    @Autowired(required = false)
+    public void setTrendingRanking(TrendingRanking trendingRanking) {
+        this.trendingRanking = trendingRanking;
+    }
+
+    // Proxy deste bean: chamadas internas que precisam de @Transactional passam por ele
+    @Autowired(required = false)
+    public void setSelf(@Lazy UrlShortenerService self) {
+        this.self = self;
+    }
+
+    // ETags de estatísticas: invalidados após gravar acessos no modo síncrono
+    @Autowired(required = false)
+    public void setResponseVersions(ResponseVersions responseVersions) {
+        this.responseVersions = responseVersions;
+    }
+
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        codeRetries(registry, "cache", codeRetriesCache);
+        codeRetries(registry, "database", codeRetriesDatabase);
+        codeRetries(registry, "collision", codeCollisions);
+        FunctionCounter.builder("shortener.code.generation.exhausted", codeExhausted, LongAdder::sum)
+                .description("Encurtamentos sem código único após todas as tentativas")
+                .register(registry);
+        dbFallbackFound = dbFallbackTimer(registry, "found");
+        dbFallbackMissing = dbFallbackTimer(registry, "missing");
+        accessWriteSync = Timer.builder("shortener.access.write")
+                .description("Gravação de acessos no banco")
+                .tag("mode", "sync")
+                .register(registry);
+    }
+
+    private static void codeRetries(MeterRegistry registry, String reason, LongAdder counter) {
+        FunctionCounter.builder("shortener.code.generation.retries", counter, LongAdder::sum)
+                .description("Códigos gerados descartados e sorteados de novo")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static Timer dbFallbackTimer(MeterRegistry registry, String result) {
+        return Timer.builder("shortener.db.fallback")
+                .description("Consultas ao banco após falta em todos os caches")
+                .tag("operation", "getByCode").tag("result", result)
+                .register(registry);
+    }
+
+    // Injeta o writer assíncrono de acessos opcionalmente; sem ele, grava de forma síncrona
+    @Autowired(required = false)
+    public void setAccessLogWriter(AccessLogWriter accessLogWriter) {
+        this.accessLogWriter = accessLogWriter;
+    }
+
     @Transactional
     public ShortUrl shorten(String originalUrl, String customCode) {
+        return shortenWithOutcome(originalUrl, customCode).shortUrl();
+    }
+
+    /**
+     * Mesmo fluxo de {@link #shorten(String, String)}, informando se o link foi criado por esta
+     * chamada ou já existia (par/URL existente ou corrida resolvida com o link de outra gravação).
+     */
+    @Transactional
+    public ShortenOutcome shortenWithOutcome(String originalUrl, String customCode) {
         log.info("Shorten requested: originalUrl={}, customCodeProvided={}", originalUrl, customCode != null);
         // Valida e normaliza URL de entrada para mitigar open redirect/CRLF e tamanhos excessivos
         final String safeOriginalUrl = validateAndNormalizeUrl(originalUrl);
         if (customCode != null) {
+            // Filtro de Bloom: se o código certamente não existe, o par também não existe
+            final boolean codeMayExist = mightContainCode(customCode);
             // Idempotência: se o par (code, originalUrl) já existe, retorna como incluído
             ShortUrl existingPair = shortUrlCache != null
                     ? shortUrlCache.getByPair(customCode, safeOriginalUrl).orElse(null)
                     : null;
-            if (existingPair == null) {
+            if (existingPair == null && codeMayExist) {
                 existingPair = shortUrlRepository.findByCodeAndOriginalUrl(customCode, safeOriginalUrl).orElse(null);
                 if (existingPair != null) {
                     putAfterCommit(existingPair);
@@ -72,13 +207,13 @@ public class UrlShortenerService {
             }
             if (existingPair != null) {
                 log.info("Existing pair found for custom code: {} -> {}. Returning as created.", customCode, safeOriginalUrl);
-                return existingPair;
+                return new ShortenOutcome(existingPair, false);
             }
 
             // Colisão real: código em uso para outra URL
             boolean codeInUse = topRankingCache.containsCode(customCode)
                     || (shortUrlCache != null && shortUrlCache.containsCode(customCode))
-                    || shortUrlRepository.existsByCode(customCode);
+                    || (codeMayExist && shortUrlRepository.existsByCode(customCode));
             if (codeInUse) {
                 log.warn("Duplicate custom code detected (different URL): {}", customCode);
                 throw new DuplicateCodeException(customCode);
@@ -89,21 +224,22 @@ public class UrlShortenerService {
                 final ShortUrl saved = shortUrlRepository.saveAndFlush(candidate);
                 log.info("Shorten created with custom code: {} -> {}", saved.getCode(), saved.getOriginalUrl());
                 putAfterCommit(saved);
-                return saved;
+                return new ShortenOutcome(saved, true);
             } catch (DataIntegrityViolationException e) {
                 // Corrida entre instâncias: tenta recuperar o par e retornar como criado
                 ShortUrl raced = shortUrlRepository.findByCodeAndOriginalUrl(customCode, safeOriginalUrl).orElse(null);
                 if (raced != null) {
                     log.info("Race detected and resolved for custom code: {} -> {}. Returning existing.", customCode, safeOriginalUrl);
                     putAfterCommit(raced);
-                    return raced;
+                    return new ShortenOutcome(raced, false);
                 }
                 log.warn("DataIntegrityViolation on custom code {} without matching pair.", customCode, e);
                 throw new DuplicateCodeException(customCode);
             }
         }
 
-        // Idempotência: sem código, retorna existente por URL se já houver
+        // Idempotência: sem código, retorna existente por URL se já houver. Sem constraint única
+        // por URL, a consulta ao banco é a única garantia entre instâncias (não passa pelo filtro de Bloom)
         ShortUrl existingByUrl = shortUrlCache != null
                 ? shortUrlCache.getByUrl(safeOriginalUrl).orElse(null)
                 : null;
@@ -115,23 +251,39 @@ public class UrlShortenerService {
         }
         if (existingByUrl != null) {
             log.info("Existing entry found for originalUrl {}. Returning as created.", safeOriginalUrl);
-            return existingByUrl;
+            return new ShortenOutcome(existingByUrl, false);
         }
 
         final int maxAttempts = 5;
+        CodeGenerationEvent generation = new CodeGenerationEvent();
+        generation.begin();
         for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            final String code = generateRandomCode();
-            log.debug("Attempt {} generating random code: {}", attempt + 1, code);
+            final String code = codeGenerator.nextCode();
+            log.debug("Attempt {} generating code: {}", attempt + 1, code);
             // Primeiro valida no cache/TopRanking
             boolean inCache = topRankingCache.containsCode(code)
                     || (shortUrlCache != null && shortUrlCache.containsCode(code));
             if (inCache) {
                 log.debug("Generated code {} is present in cache; retrying", code);
+                codeRetriesCache.increment();
+                generation.cacheRetries++;
                 continue;
             }
-            // Fallback: valida existência no banco
-            if (shortUrlRepository.existsByCode(code)) {
-                log.debug("Generated code {} already exists in database; retrying", code);
+            // Fallback: valida existência no banco (pulado se o filtro de Bloom garante ausência)
+            if (codeGenerator.requiresExistenceCheck()) {
+                if (mightContainCode(code) && shortUrlRepository.existsByCode(code)) {
+                    log.debug("Generated code {} already exists in database; retrying", code);
+                    codeRetriesDatabase.increment();
+                    generation.databaseRetries++;
+                    continue;
+                }
+            } else if (bloomFilters != null && bloomFilters.isReady()
+                    && bloomFilters.mightContainCode(code) && shortUrlRepository.existsByCode(code)) {
+                // Sequência: único por construção; só sonda o banco quando o filtro aponta possível
+                // colisão com códigos customizados ou legados (aleatórios)
+                log.debug("Sequence code {} collides with an existing code; skipping", code);
+                codeRetriesDatabase.increment();
+                generation.databaseRetries++;
                 continue;
             }
             final ShortUrl candidate = new ShortUrl(safeOriginalUrl, code, Instant.now());
@@ -139,43 +291,331 @@ public class UrlShortenerService {
                 final ShortUrl saved = shortUrlRepository.saveAndFlush(candidate);
                 log.info("Shorten created with generated code: {} -> {}", saved.getCode(), saved.getOriginalUrl());
                 putAfterCommit(saved);
-                return saved;
+                generationDone(generation, attempt + 1, true);
+                return new ShortenOutcome(saved, true);
             } catch (DataIntegrityViolationException e) {
                 // Colisão de unicidade: se o par existir, retorna como criado; senão tenta outro código
                 ShortUrl raced = shortUrlRepository.findByCodeAndOriginalUrl(code, safeOriginalUrl).orElse(null);
                 if (raced != null) {
                     log.info("Race detected and resolved for generated code: {} -> {}. Returning existing.", code, safeOriginalUrl);
                     putAfterCommit(raced);
-                    return raced;
+                    generationDone(generation, attempt + 1, true);
+                    return new ShortenOutcome(raced, false);
                 }
                 log.warn("Collision detected for code {} without matching pair. Retrying.", code);
+                codeCollisions.increment();
+                generation.collisions++;
             }
         }
+        generationDone(generation, maxAttempts, false);
+        codeExhausted.increment();
         log.error("Failed to generate a unique code after {} attempts", maxAttempts);
         throw new IllegalStateException("Não foi possível gerar um código único após múltiplas tentativas");
     }
 
+    private static void generationDone(CodeGenerationEvent event, int attempts, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.attempts = attempts;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * Encurta vários links com as mesmas regras de {@link #shorten(String, String)}, mas em
+     * poucas idas ao banco: uma consulta IN por código customizado, uma por URL, uma por
+     * rodada de códigos gerados e um único INSERT em lote. Cada item recebe seu próprio
+     * resultado; um item inválido não rejeita os demais.
+     * <p>
+     * Sem transação envolvente: as consultas são leituras simples e o INSERT em lote tem
+     * transação própria. Se o lote colidir com uma gravação concorrente (unicidade), os
+     * itens novos são refeitos um a um por {@link #shortenWithOutcome(String, String)}, chamado
+     * pelo proxy do bean (cada item em sua transação) e reportado como EXISTING quando o link
+     * já existia.
+     */
+    public List<BatchItemResult> shortenBatch(List<ShortenRequest> items) {
+        log.info("Batch shorten requested: items={}", items.size());
+        final int n = items.size();
+        final BatchItemResult[] results = new BatchItemResult[n];
+        final String[] urls = new String[n];
+
+        // 1) Valida e normaliza; separa as chaves a consultar
+        Set<String> customCodes = new HashSet<>();
+        Set<String> plainUrls = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            ShortenRequest req = items.get(i);
+            if (req == null) {
+                results[i] = BatchItemResult.invalid("item é obrigatório");
+                continue;
+            }
+            try {
+                urls[i] = validateAndNormalizeUrl(req.url());
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchItemResult.invalid(e.getMessage());
+                continue;
+            }
+            if (req.code() == null) {
+                plainUrls.add(urls[i]);
+            } else if (!CODE_PATTERN.matcher(req.code()).matches()) {
+                results[i] = BatchItemResult.invalid("code deve ter exatamente 5 caracteres alfanuméricos");
+            } else {
+                customCodes.add(req.code());
+            }
+        }
+
+        // 2) Existentes: uma consulta por índice (code e original_url)
+        Map<String, ShortUrl> byCode = new HashMap<>();
+        if (!customCodes.isEmpty()) {
+            for (ShortUrl su : shortUrlRepository.findByCodeIn(customCodes)) {
+                byCode.put(su.getCode(), su);
+            }
+        }
+        Map<String, ShortUrl> byUrl = new HashMap<>();
+        if (!plainUrls.isEmpty()) {
+            // Mesmo critério de findFirstByOriginalUrlOrderByCreatedAtDesc: o mais recente
+            for (ShortUrl su : shortUrlRepository.findByOriginalUrlIn(plainUrls)) {
+                byUrl.merge(su.getOriginalUrl(), su, (a, b) -> a.getCreatedAt().isAfter(b.getCreatedAt()) ? a : b);
+            }
+        }
+
+        // 3) Resolve na ordem da requisição; itens repetidos reaproveitam o candidato anterior
+        final ShortUrl[] resolved = new ShortUrl[n];
+        final boolean[] creates = new boolean[n];
+        List<ShortUrl> candidates = new ArrayList<>();
+        List<ShortUrl> needCode = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < n; i++) {
+            if (results[i] != null) continue;
+            String code = items.get(i).code();
+            ShortUrl existing = code != null ? byCode.get(code) : byUrl.get(urls[i]);
+            if (existing != null) {
+                if (code != null && !existing.getOriginalUrl().equals(urls[i])) {
+                    results[i] = BatchItemResult.conflict(code);
+                } else {
+                    resolved[i] = existing;
+                }
+                continue;
+            }
+            ShortUrl candidate = new ShortUrl(urls[i], code, now);
+            if (code != null) {
+                byCode.put(code, candidate);
+            } else {
+                needCode.add(candidate);
+            }
+            byUrl.put(urls[i], candidate);
+            candidates.add(candidate);
+            resolved[i] = candidate;
+            creates[i] = true;
+        }
+
+        // 4) Gera códigos para os itens sem código customizado
+        Set<String> reserved = new HashSet<>(byCode.keySet());
+        assignGeneratedCodes(needCode, reserved);
+
+        // 5) Grava todos os novos em um INSERT em lote
+        Map<ShortUrl, BatchItemResult> outcomes = insertCandidates(candidates, items, resolved, creates);
+
+        int created = 0;
+        for (int i = 0; i < n; i++) {
+            if (results[i] != null) continue;
+            ShortUrl su = resolved[i];
+            BatchItemResult outcome = outcomes.get(su);
+            if (outcome == null) {
+                results[i] = BatchItemResult.existing(su);
+            } else if (creates[i]) {
+                results[i] = outcome;
+            } else {
+                // Repetição no mesmo lote: aponta para o link criado pelo primeiro item
+                results[i] = outcome.shortUrl() != null ? BatchItemResult.existing(outcome.shortUrl()) : outcome;
+            }
+            if (results[i].status() == BatchItemResult.Status.CREATED) created++;
+        }
+        log.info("Batch shorten finished: items={}, created={}", n, created);
+        return Arrays.asList(results);
+    }
+
+    // Rodadas de geração: uma consulta IN por rodada para os códigos que o filtro de Bloom não descarta
+    private void assignGeneratedCodes(List<ShortUrl> needCode, Set<String> reserved) {
+        final int maxAttempts = 5;
+        List<ShortUrl> pending = needCode;
+        for (int attempt = 0; attempt < maxAttempts && !pending.isEmpty(); attempt++) {
+            Map<String, ShortUrl> proposed = new HashMap<>();
+            List<ShortUrl> retry = new ArrayList<>();
+            for (ShortUrl su : pending) {
+                String code = codeGenerator.nextCode();
+                boolean taken = reserved.contains(code) || proposed.containsKey(code)
+                        || topRankingCache.containsCode(code)
+                        || (shortUrlCache != null && shortUrlCache.containsCode(code));
+                if (taken) {
+                    codeRetriesCache.increment();
+                    retry.add(su);
+                } else {
+                    proposed.put(code, su);
+                }
+            }
+            Set<String> toCheck = new HashSet<>();
+            for (String code : proposed.keySet()) {
+                if (mightContainCode(code)) toCheck.add(code);
+            }
+            Set<String> existing = toCheck.isEmpty() ? Set.of() : new HashSet<>(shortUrlRepository.findExistingCodes(toCheck));
+            for (Map.Entry<String, ShortUrl> e : proposed.entrySet()) {
+                if (existing.contains(e.getKey())) {
+                    log.debug("Generated code {} already exists in database; retrying", e.getKey());
+                    codeRetriesDatabase.increment();
+                    retry.add(e.getValue());
+                } else {
+                    e.getValue().setCode(e.getKey());
+                    reserved.add(e.getKey());
+                }
+            }
+            pending = retry;
+        }
+        if (!pending.isEmpty()) {
+            codeExhausted.add(pending.size());
+            log.error("Failed to generate unique codes for {} batch items after {} attempts", pending.size(), maxAttempts);
+        }
+    }
+
+    private Map<ShortUrl, BatchItemResult> insertCandidates(List<ShortUrl> candidates, List<ShortenRequest> items,
+                                                             ShortUrl[] resolved, boolean[] creates) {
+        Map<ShortUrl, BatchItemResult> outcomes = new IdentityHashMap<>();
+        List<ShortUrl> insertable = new ArrayList<>(candidates.size());
+        for (ShortUrl su : candidates) {
+            if (su.getCode() == null) {
+                outcomes.put(su, BatchItemResult.failed("Não foi possível gerar um código único após múltiplas tentativas"));
+            } else {
+                insertable.add(su);
+            }
+        }
+        if (insertable.isEmpty()) return outcomes;
+        try {
+            shortUrlRepository.insertAll(insertable);
+            for (ShortUrl su : insertable) {
+                putAfterCommit(su);
+                outcomes.put(su, BatchItemResult.created(su));
+            }
+            log.info("Batch shorten inserted {} links", insertable.size());
+        } catch (DataIntegrityViolationException e) {
+            // Corrida com outra gravação: o lote foi desfeito; refaz os novos um a um
+            log.warn("Batch insert of {} links hit a uniqueness violation; retrying item by item", insertable.size());
+            for (int i = 0; i < resolved.length; i++) {
+                ShortUrl su = resolved[i];
+                if (!creates[i] || su == null || su.getCode() == null) continue;
+                outcomes.put(su, shortenOne(su.getOriginalUrl(), items.get(i).code()));
+            }
+        }
+        return outcomes;
+    }
+
+    private BatchItemResult shortenOne(String url, String customCode) {
+        try {
+            // Pelo proxy: cada item na transação de shortenWithOutcome, como em POST /shorten
+            ShortenOutcome outcome = self().shortenWithOutcome(url, customCode);
+            return outcome.created() ? BatchItemResult.created(outcome.shortUrl()) : BatchItemResult.existing(outcome.shortUrl());
+        } catch (DuplicateCodeException e) {
+            return BatchItemResult.conflict(customCode);
+        } catch (RuntimeException e) {
+            log.warn("Batch item failed on retry: url={}, error={}", url, e.getMessage());
+            return BatchItemResult.failed(e.getMessage());
+        }
+    }
+
+    private UrlShortenerService self() {
+        return self != null ? self : this;
+    }
+
     public ShortUrl getByCode(String code) {
         log.debug("Fetching ShortUrl by code: {}", code);
-        // Tenta pegar a entidade diretamente do Top-5
+        CodeLookupEvent event = new CodeLookupEvent();
+        event.begin();
+        // Tenta pegar a entidade diretamente do Top-100
         ShortUrl topEntity = topRankingCache.getEntity(code);
         if (topEntity != null) {
-            return topEntity;
+            return lookupDone(event, code, CodeLookupEvent.TOP_RANKING, topEntity);
+        }
+        // Read-through: cache de códigos antes do banco
+        if (shortUrlCache != null) {
+            ShortUrl cached = shortUrlCache.getByCode(code).orElse(null);
+            if (cached != null) {
+                return lookupDone(event, code, CodeLookupEvent.CACHE, cached);
+            }
+        }
+        // Código sabidamente inexistente (varredura de robôs): evita ir ao banco
+        if (negativeCodeCache != null && negativeCodeCache.isKnownMissing(code)) {
+            log.debug("Negative cache hit for code={}", code);
+            return lookupDone(event, code, CodeLookupEvent.NEGATIVE, null);
         }
-        // Fallback: busca no banco
-        return shortUrlRepository.findByCode(code).orElse(null);
+        // Fallback: busca no banco e popula o cache (positivo ou negativo)
+        long started = System.nanoTime();
+        ShortUrl su = shortUrlRepository.findByCode(code).orElse(null);
+        Timer fallback = su != null ? dbFallbackFound : dbFallbackMissing;
+        if (fallback != null) {
+            fallback.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        if (su != null) {
+            if (shortUrlCache != null) {
+                shortUrlCache.putByCode(su);
+            }
+        } else if (negativeCodeCache != null) {
+            negativeCodeCache.recordMiss(code);
+        }
+        return lookupDone(event, code, CodeLookupEvent.DATABASE, su);
     }
 
-    @Transactional
+    // Campos do evento JFR preenchidos só quando a busca passa do limiar da gravação
+    private static ShortUrl lookupDone(CodeLookupEvent event, String code, String tier, ShortUrl result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.code = code;
+            event.tier = tier;
+            event.found = result != null;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Registra um acesso. Sem transação própria: com o writer assíncrono o redirecionamento
+     * não aguarda o banco; no modo síncrono o save do repositório já é transacional.
+     */
     public void registerAccess(ShortUrl shortUrl, String userAgent, String referer) {
         log.info("Registering access: code={}, userAgent={}, referer={}", shortUrl.getCode(), safe(userAgent), safe(referer));
         ShortUrlAccess access = new ShortUrlAccess(shortUrl, Instant.now(), userAgent, referer);
-        shortUrlAccessRepository.save(access);
+        if (trendingRanking != null) {
+            // Só memória: conta o acesso já na requisição, sem esperar a gravação em lote
+            trendingRanking.record(shortUrl.getCode(), shortUrl.getOriginalUrl());
+        }
+        if (accessLogWriter != null) {
+            // Write-behind: o writer persiste em lote e atualiza o ranking após o commit do lote
+            accessLogWriter.enqueue(access);
+            return;
+        }
+        AccessWriteEvent writeEvent = new AccessWriteEvent();
+        writeEvent.begin();
+        boolean saved = false;
+        try {
+            long started = System.nanoTime();
+            shortUrlAccessRepository.save(access);
+            if (accessWriteSync != null) {
+                accessWriteSync.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+            saved = true;
+        } finally {
+            writeEvent.end();
+            if (writeEvent.shouldCommit()) {
+                writeEvent.mode = "sync";
+                writeEvent.accesses = 1;
+                writeEvent.success = saved;
+                writeEvent.commit();
+            }
+        }
         // Atualiza o cache apenas após o commit da transação para evitar inconsistência em caso de rollback
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
+                    statsChanged();
                     try {
                         topRankingCache.onAccess(shortUrl);
                     } catch (Exception e) {
@@ -185,6 +625,7 @@ public class UrlShortenerService {
             });
         } else {
             // Sem contexto transacional: atualiza imediatamente
+            statsChanged();
             try {
                 topRankingCache.onAccess(shortUrl);
             } catch (Exception e) {
@@ -193,41 +634,82 @@ public class UrlShortenerService {
         }
     }
 
+    private void statsChanged() {
+        if (responseVersions != null) {
+            responseVersions.statsChanged();
+        }
+    }
+
     public List<RankingItem> ranking() {
         log.info("Fetching ranking list exclusively from cache (top-100)");
         return topRankingCache.getTop();
     }
 
+    /**
+     * Top-N da janela deslizante, servido da memória (sem consultas ao banco).
+     * Lança IllegalArgumentException se a janela não estiver configurada em trending.windows.
+     */
+    public List<RankingItem> trending(Duration window, int limit) {
+        if (trendingRanking == null) return List.of();
+        if (!trendingRanking.supports(window)) {
+            throw new IllegalArgumentException("Janelas disponíveis: " + trendingWindows());
+        }
+        return trendingRanking.top(window, limit);
+    }
+
+    public List<Duration> trendingWindows() {
+        return trendingRanking != null ? trendingRanking.windows() : List.of();
+    }
+
     public Page<StatsResponse> listStats(Pageable pageable) {
         log.info("Listing stats page: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
         return shortUrlRepository.findAllStats(pageable);
     }
 
     /**
-     * Calcula estatísticas agregadas globais (total, últimos 7 dias e diário).
+     * Página offset sem o COUNT da tabela (includeTotal=false).
      */
-    public StatsSummaryResponse getStatsSummary() {
-        log.info("Computing global stats summary");
-        long total = shortUrlAccessRepository.count();
+    public Slice<StatsResponse> listStatsSlice(Pageable pageable) {
+        log.info("Listing stats slice: page={}, size={}", pageable.getPageNumber(), pageable.getPageSize());
+        return shortUrlRepository.findStatsSlice(pageable);
+    }
 
-        Instant now = Instant.now();
-        Instant cutoff = now.minusSeconds(7 * 24 * 60 * 60);
-        long last7 = shortUrlAccessRepository.countByAccessedAtAfter(cutoff);
-
-        ZoneId zone = ZoneOffset.UTC;
-        LocalDate today = LocalDate.now(zone);
-        List<br.corp.shortener.dto.DayHits> daily = new java.util.ArrayList<>();
-
-        for (int i = 6; i >= 0; i--) {
-            LocalDate day = today.minusDays(i);
-            Instant start = day.atStartOfDay(zone).toInstant();
-            Instant end = day.plusDays(1).atStartOfDay(zone).toInstant();
-            long hits = shortUrlAccessRepository.countByAccessedAtBetween(start, end);
-            if (hits > 0) {
-                daily.add(new br.corp.shortener.dto.DayHits(day, hits));
-            }
+    /**
+     * Página por cursor (seek em created_at DESC, id DESC): custo constante em qualquer profundidade.
+     * Com {@code after} null retorna a primeira página.
+     */
+    public StatsCursorPage listStatsAfter(StatsCursor after, int size, boolean includeTotal) {
+        log.info("Listing stats by cursor: after={}, size={}, includeTotal={}", after != null ? after.encode() : null, size, includeTotal);
+        // Busca um item a mais para saber se há próxima página
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ShortUrl> rows = after == null
+                ? shortUrlRepository.findStatsFirstPage(limit)
+                : shortUrlRepository.findStatsPageAfter(after.createdAt(), after.id(), limit);
+        boolean hasNext = rows.size() > size;
+        List<ShortUrl> page = hasNext ? rows.subList(0, size) : rows;
+        List<StatsResponse> content = new ArrayList<>(page.size());
+        for (ShortUrl su : page) {
+            content.add(new StatsResponse(su.getCode(), su.getOriginalUrl(), su.getHitCount()));
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            ShortUrl last = page.get(page.size() - 1);
+            nextCursor = new StatsCursor(last.getCreatedAt(), last.getId()).encode();
         }
+        Long total = includeTotal ? shortUrlRepository.count() : null;
+        return new StatsCursorPage(content, size, hasNext, nextCursor, total);
+    }
 
+    /**
+     * Calcula estatísticas agregadas globais (total, últimos 7 dias e diário)
+     * a partir do rollup diário, sem varrer a tabela de acessos.
+     * "Últimos 7 dias" corresponde aos 7 dias UTC até hoje, inclusive.
+     */
+    public StatsSummaryResponse getStatsSummary() {
+        log.info("Computing global stats summary");
+        long total = dailyHitsRepository.sumAllHits();
+        List<DayHits> daily = dailyHitsRepository.sumHitsByDaySince(firstDayOfWindow());
+        long last7 = daily.stream().mapToLong(DayHits::hits).sum();
         return new StatsSummaryResponse(total, last7, daily);
     }
 
@@ -238,57 +720,61 @@ public class UrlShortenerService {
     public StatsResponse getStats(String code) {
         ShortUrl su = getByCode(code);
         if (su == null) return null;
+        return new StatsResponse(su.getCode(), su.getOriginalUrl(), totalHits(su));
+    }
 
-        Long cachedHits = topRankingCache.getHits(su.getCode());
-        long hits = cachedHits != null ? cachedHits : shortUrlAccessRepository.countByShortUrl(su);
-        return new StatsResponse(su.getCode(), su.getOriginalUrl(), hits);
+    /**
+     * Total de acessos de um código, sem montar o resumo (base do ETag por código).
+     * Retorna null se o código não existir.
+     */
+    public Long getTotalHits(String code) {
+        ShortUrl su = getByCode(code);
+        return su == null ? null : totalHits(su);
     }
 
     /**
-     * Calcula resumo de estatísticas para um código específico.
+     * Calcula resumo de estatísticas para um código específico: total por hit_count
+     * e os últimos 7 dias por uma leitura de faixa no rollup diário.
      * Retorna null se o código não existir.
      */
     public StatsCodeSummaryResponse getStatsSummaryByCode(String code) {
         ShortUrl su = getByCode(code);
         if (su == null) return null;
 
-        Instant now = Instant.now();
-        Instant cutoff = now.minusSeconds(7 * 24 * 60 * 60);
+        List<DayHits> daily = dailyHitsRepository.findDailyHitsSince(su.getId(), firstDayOfWindow());
+        long last7DaysHits = daily.stream().mapToLong(DayHits::hits).sum();
+        return new StatsCodeSummaryResponse(su.getCode(), su.getOriginalUrl(), totalHits(su), last7DaysHits, daily);
+    }
 
+    /**
+     * Total de acessos do link: Top-100 em memória quando exato; senão hit_count
+     * (leitura pela chave primária) mais os hits desta instância ainda não gravados.
+     */
+    private long totalHits(ShortUrl su) {
         Long cachedHits = topRankingCache.getHits(su.getCode());
-        long totalHits = cachedHits != null ? cachedHits : shortUrlAccessRepository.countByShortUrl(su);
-        long last7DaysHits = shortUrlAccessRepository.countByShortUrlAndAccessedAtAfter(su, cutoff);
-
-        ZoneId zone = ZoneOffset.UTC;
-        LocalDate today = LocalDate.now(zone);
-        List<br.corp.shortener.dto.DayHits> daily = new java.util.ArrayList<>();
-
-        for (int i = 6; i >= 0; i--) {
-            LocalDate day = today.minusDays(i);
-            Instant start = day.atStartOfDay(zone).toInstant();
-            Instant end = day.plusDays(1).atStartOfDay(zone).toInstant();
-            long hits = shortUrlAccessRepository.countByShortUrlAndAccessedAtBetween(su, start, end);
-            if (hits > 0) {
-                daily.add(new br.corp.shortener.dto.DayHits(day, hits));
-            }
-        }
-
-        return new StatsCodeSummaryResponse(su.getCode(), su.getOriginalUrl(), totalHits, last7DaysHits, daily);
+        if (cachedHits != null) return cachedHits;
+        long persisted = shortUrlRepository.findHitCountById(su.getId()).orElse(0L);
+        return persisted + (hitCounter != null ? hitCounter.pending(su.getId()) : 0);
     }
 
-    private String generateRandomCode() {
-        return random.ints(CODE_LENGTH, 0, ALPHABET.length())
-                .mapToObj(ALPHABET::charAt)
-                .collect(StringBuilder::new, StringBuilder::append, StringBuilder::append)
-                .toString();
+    // Primeiro dia (UTC) da janela de 7 dias que termina hoje
+    private static LocalDate firstDayOfWindow() {
+        return LocalDate.now(ZoneOffset.UTC).minusDays(SUMMARY_DAYS - 1);
     }
 
     private void putAfterCommit(ShortUrl su) {
-        if (shortUrlCache == null) return;
+        // O código passa a existir: invalida o cache negativo já, e de novo após o commit,
+        // para descartar um miss registrado por leitura concorrente antes do commit
+        invalidateNegative(su.getCode());
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
+                    invalidateNegative(su.getCode());
+                    if (bloomFilters != null) {
+                        bloomFilters.add(su);
+                    }
+                    if (shortUrlCache == null) return;
                     try {
                         shortUrlCache.put(su);
                     } catch (Exception e) {
@@ -297,6 +783,10 @@ public class UrlShortenerService {
                 }
             });
         } else {
+            if (bloomFilters != null) {
+                bloomFilters.add(su);
+            }
+            if (shortUrlCache == null) return;
             try {
                 shortUrlCache.put(su);
             } catch (Exception e) {
@@ -305,6 +795,16 @@ public class UrlShortenerService {
         }
     }
 
+    private boolean mightContainCode(String code) {
+        return bloomFilters == null || bloomFilters.mightContainCode(code);
+    }
+
+    private void invalidateNegative(String code) {
+        if (negativeCodeCache != null) {
+            negativeCodeCache.invalidate(code);
+        }
+    }
+
     private String safe(String s) {
         if (s == null) return null;
         final int max = 200;
@@ -319,7 +819,7 @@ public class UrlShortenerService {
      * - Proíbe CR/LF para evitar HTTP Response Splitting
      * - Exige esquemas http/https e host presente
      */
-    private String validateAndNormalizeUrl(String originalUrl) {
+    String validateAndNormalizeUrl(String originalUrl) {
         if (originalUrl == null) {
             throw new IllegalArgumentException("url é obrigatória");
         }
@@ -333,9 +833,9 @@ public class UrlShortenerService {
         if (trimmed.indexOf('\r') >= 0 || trimmed.indexOf('\n') >= 0) {
             throw new IllegalArgumentException("url inválida");
         }
-        java.net.URI uri;
+        URI uri;
         try {
-            uri = java.net.URI.create(trimmed);
+            uri = URI.create(trimmed);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("url inválida");
         }
@@ -349,7 +849,7 @@ public class UrlShortenerService {
         }
         // Normaliza removendo fragmento e mantendo query
         try {
-            java.net.URI normalized = new java.net.URI(
+            URI normalized = new URI(
                     uri.getScheme(),
                     uri.getUserInfo(),
                     uri.getHost(),
@@ -0,0 +1,56 @@
+package db.migration;
+
+import br.corp.shortener.entities.UrlHash;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Coluna original_url_hash (BIGINT, {@link UrlHash}) indexada para as buscas de idempotência
+ * por URL, e remoção de uk_code_original (B-tree sobre o texto da URL), redundante porque
+ * code já é UNIQUE. O backfill é em Java porque o hash não existe em SQL.
+ */
+public class V8__short_urls_original_url_hash extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("ALTER TABLE short_urls ADD COLUMN original_url_hash BIGINT");
+        }
+
+        // Backfill em lotes: leitura por cursor (fetch size) e UPDATEs em JDBC batch
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, original_url FROM short_urls");
+             PreparedStatement update = connection.prepareStatement("UPDATE short_urls SET original_url_hash = ? WHERE id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            int pending = 0;
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    update.setLong(1, UrlHash.of(rs.getString(2)));
+                    update.setLong(2, rs.getLong(1));
+                    update.addBatch();
+                    if (++pending >= BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("ALTER TABLE short_urls ALTER COLUMN original_url_hash SET NOT NULL");
+            ddl.execute("CREATE INDEX idx_short_urls_url_hash ON short_urls (original_url_hash)");
+            // code já é único: qualquer constraint composta com code é redundante
+            ddl.execute("ALTER TABLE short_urls DROP CONSTRAINT IF EXISTS uk_code_original");
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Sequência para geração de códigos por blocos: cada nextval reserva 1000 números
+-- que são permutados em códigos base62 (SequenceCodeGenerator)
+CREATE SEQUENCE IF NOT EXISTS short_code_seq START WITH 0 MINVALUE 0 INCREMENT BY 1000;
@@ -0,0 +1,7 @@
+-- Contador desnormalizado de acessos por link, incrementado em lote pelo HitCounter
+ALTER TABLE short_urls ADD COLUMN hit_count BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill a partir do rollup diário (já consistente com short_url_accesses)
+UPDATE short_urls SET hit_count = (
+    SELECT COALESCE(SUM(d.hits), 0) FROM short_url_daily_hits d WHERE d.short_url_id = short_urls.id
+);
@@ -0,0 +1,2 @@
+-- Índice para a paginação por cursor (seek) de GET /stats: ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_short_urls_created_at_id ON short_urls (created_at DESC, id DESC);
@@ -6,6 +6,9 @@ import br.corp.shortener.dto.ShortenRequest;
 import br.corp.shortener.dto.ShortenResponse;
 import br.corp.shortener.entities.ShortUrl;
 import br.corp.shortener.exceptions.DuplicateCodeException;
+import br.corp.shortener.services.LinkImporter;
+import br.corp.shortener.services.RankingStream;
+import br.corp.shortener.services.ResponseVersions;
 import br.corp.shortener.services.UrlShortenerService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,8 +16,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.net.URI;
 import java.time.Instant;
@@ -30,6 +37,15 @@ class LinkControllerTest {
     @Mock
     private UrlShortenerService service;
 
+    @Mock
+    private LinkImporter importer;
+
+    @Mock
+    private RankingStream rankingStream;
+
+    @Mock
+    private ResponseVersions versions;
+
     @InjectMocks
     private LinkController controller;
 
@@ -63,12 +79,32 @@ class LinkControllerTest {
     void ranking_ok() {
         List<RankingItem> items = List.of(new RankingItem("AAA11", "https://ex.com", 2L));
         when(service.ranking()).thenReturn(items);
-
-        List<RankingItem> resp = controller.ranking();
-        assertEquals(items, resp);
+        when(versions.rankingETag()).thenReturn("\"r-x-7\"");
+        when(versions.rankingCacheControl()).thenReturn(CacheControl.noCache());
+
+        ResponseEntity<List<RankingItem>> resp = controller.ranking(
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/ranking"), new MockHttpServletResponse()));
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals(items, resp.getBody());
+        assertEquals("\"r-x-7\"", resp.getHeaders().getETag());
         verify(service).ranking();
     }
 
+    @Test
+    @DisplayName("ranking responde 304 sem consultar o service quando If-None-Match confere")
+    void ranking_notModified() {
+        when(versions.rankingETag()).thenReturn("\"r-x-7\"");
+        when(versions.rankingCacheControl()).thenReturn(CacheControl.noCache());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ranking");
+        request.addHeader("If-None-Match", "\"r-x-7\"");
+
+        ResponseEntity<List<RankingItem>> resp = controller.ranking(new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, resp.getStatusCode());
+        assertNull(resp.getBody());
+        verify(service, never()).ranking();
+    }
+
     @Test
     @DisplayName("redirect 302 quando encontra o code e registra acesso")
     void redirect_found() {
@@ -102,4 +138,15 @@ class LinkControllerTest {
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, resp.getStatusCode());
         assertTrue(resp.getBody() instanceof ErrorResponse);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("ranking/stream retorna 503 com Retry-After quando o limite de assinantes foi atingido")
+    void rankingStream_full() {
+        when(rankingStream.subscribe()).thenReturn(null);
+
+        ResponseEntity<?> resp = controller.rankingStream();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, resp.getStatusCode());
+        assertEquals("30", resp.getHeaders().getFirst("Retry-After"));
+    }
+}
@@ -1,7 +1,12 @@
 package br.corp.shortener.controllers;
 
 import br.corp.shortener.dto.ErrorResponse;
+import br.corp.shortener.dto.StatsCodeSummaryResponse;
+import br.corp.shortener.dto.StatsSummaryResponse;
 import br.corp.shortener.dto.StatsResponse;
+import br.corp.shortener.exceptions.InvalidExportFormatException;
+import br.corp.shortener.services.ResponseVersions;
+import br.corp.shortener.services.StatsExporter;
 import br.corp.shortener.services.UrlShortenerService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,10 +14,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,6 +34,12 @@ class StatsControllerTest {
     @Mock
     private UrlShortenerService service;
 
+    @Mock
+    private StatsExporter exporter;
+
+    @Mock
+    private ResponseVersions versions;
+
     @InjectMocks
     private StatsController controller;
 
@@ -48,4 +65,72 @@ class StatsControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, resp.getStatusCode());
         assertTrue(resp.getBody() instanceof ErrorResponse);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("export rejeita formato não suportado")
+    void export_invalidFormat() {
+        assertThrows(InvalidExportFormatException.class, () -> controller.export("xml"));
+        verifyNoInteractions(exporter);
+    }
+
+    @Test
+    @DisplayName("export csv define content type e nome do arquivo")
+    void export_csvHeaders() {
+        ResponseEntity<?> resp = controller.export("CSV");
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals("text/csv", resp.getHeaders().getContentType().toString());
+        assertTrue(resp.getHeaders().getFirst("Content-Disposition").contains("stats.csv"));
+    }
+
+    @Test
+    @DisplayName("summary envia ETag e Cache-Control; If-None-Match igual responde 304 sem consultar o service")
+    void summary_conditional() {
+        when(versions.statsETag()).thenReturn("\"s-3-20000\"");
+        when(versions.statsETag(3L)).thenReturn("\"s-3-20000\"");
+        when(versions.statsCacheControl()).thenReturn(CacheControl.maxAge(Duration.ofSeconds(5)).cachePublic());
+        when(service.getStatsSummary()).thenReturn(new StatsSummaryResponse(3L, 3L, List.of()));
+
+        ResponseEntity<StatsSummaryResponse> first = controller.summary(
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/stats/summary"), new MockHttpServletResponse()));
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("\"s-3-20000\"", first.getHeaders().getETag());
+        assertEquals("max-age=5, public", first.getHeaders().getCacheControl());
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stats/summary");
+        request.addHeader("If-None-Match", "\"s-3-20000\"");
+        ResponseEntity<StatsSummaryResponse> second = controller.summary(new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+        verify(service, times(1)).getStatsSummary();
+    }
+
+    @Test
+    @DisplayName("summary por código usa ETag do próprio código; código inexistente responde 404, nunca 304")
+    void summaryByCode_conditional() {
+        when(versions.statsCacheControl()).thenReturn(CacheControl.maxAge(Duration.ofSeconds(5)).cachePublic());
+        when(versions.statsCodeETag("ABCDE", 4L)).thenReturn("\"c-ABCDE-4-20000\"");
+        when(service.getTotalHits("ABCDE")).thenReturn(4L);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stats/ABCDE/summary");
+        request.addHeader("If-None-Match", "\"c-ABCDE-4-20000\"");
+        ResponseEntity<?> notModified = controller.summaryByCode("ABCDE", new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        verify(service, never()).getStatsSummaryByCode(anyString());
+
+        // Novo acesso muda o total e, com ele, o ETag
+        when(service.getTotalHits("ABCDE")).thenReturn(5L);
+        when(versions.statsCodeETag("ABCDE", 5L)).thenReturn("\"c-ABCDE-5-20000\"");
+        when(service.getStatsSummaryByCode("ABCDE"))
+                .thenReturn(new StatsCodeSummaryResponse("ABCDE", "https://ex.com", 5L, 5L, List.of()));
+        ResponseEntity<?> changed = controller.summaryByCode("ABCDE", new ServletWebRequest(request, new MockHttpServletResponse()));
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertEquals("\"c-ABCDE-5-20000\"", changed.getHeaders().getETag());
+
+        when(service.getTotalHits("GONE1")).thenReturn(null);
+        MockHttpServletRequest gone = new MockHttpServletRequest("GET", "/stats/GONE1/summary");
+        gone.addHeader("If-None-Match", "\"c-GONE1-4-20000\"");
+        ResponseEntity<?> missing = controller.summaryByCode("GONE1", new ServletWebRequest(gone, new MockHttpServletResponse()));
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        verify(versions, never()).statsCodeETag(eq("GONE1"), anyLong());
+    }
+}
@@ -0,0 +1,26 @@
+package br.corp.shortener.entities;
+
+import java.time.Instant;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlHashTest {
+
+    @Test
+    @DisplayName("hash é estável: valores já gravados em original_url_hash não podem mudar")
+    void stableValues() {
+        assertEquals(0x708de1bd3a04ae45L, UrlHash.of("https://www.google.com/"));
+        assertNotEquals(UrlHash.of("https://ex.com/a"), UrlHash.of("https://ex.com/b"));
+    }
+
+    @Test
+    @DisplayName("entidade recalcula o hash quando a URL muda")
+    void entityKeepsHashInSync() {
+        ShortUrl su = new ShortUrl("https://ex.com/a", "ABCDE", Instant.now());
+        assertEquals(UrlHash.of("https://ex.com/a"), su.getOriginalUrlHash());
+        su.setOriginalUrl("https://ex.com/b");
+        assertEquals(UrlHash.of("https://ex.com/b"), su.getOriginalUrlHash());
+    }
+}
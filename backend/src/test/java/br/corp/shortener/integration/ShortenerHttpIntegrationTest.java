@@ -1,24 +1,66 @@
 package br.corp.shortener.integration;
 
+import br.corp.shortener.dto.BatchShortenRequest;
+import br.corp.shortener.dto.BatchShortenResponse;
 import br.corp.shortener.dto.ErrorResponse;
+import br.corp.shortener.dto.LinkImportResponse;
+import br.corp.shortener.dto.RankingItem;
 import br.corp.shortener.dto.ShortenRequest;
 import br.corp.shortener.dto.ShortenResponse;
+import br.corp.shortener.dto.StatsCursorPage;
+import br.corp.shortener.dto.StatsResponse;
 import br.corp.shortener.dto.ValidationErrorResponse;
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.entities.ShortUrlAccess;
+import br.corp.shortener.entities.UrlHash;
+import br.corp.shortener.repositories.ShortUrlAccessRepository;
+import br.corp.shortener.repositories.ShortUrlRepository;
+import br.corp.shortener.services.AccessRetentionJob;
+import br.corp.shortener.services.HitCounter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
+// Exportadores de métricas ficam desligados em testes por padrão; GET /actuator/prometheus precisa deles
+@AutoConfigureObservability(tracing = false)
 class ShortenerHttpIntegrationTest {
 
     @LocalServerPort
@@ -106,4 +148,405 @@ class ShortenerHttpIntegrationTest {
         assertTrue(body.contains("\"code\":\"QWERT\""));
         assertTrue(body.contains("\"hits\":0"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /{code} (302) registra o acesso e /stats/{code} reflete o hit após o flush")
+    void redirect302_registers_access() throws Exception {
+        ShortenRequest req = new ShortenRequest("https://example.net/", "RDR01");
+        ResponseEntity<ShortenResponse> created = http.postForEntity(baseUrl + "/shorten", req, ShortenResponse.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+
+        RestTemplate noRedirect = new RestTemplate(new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                connection.setInstanceFollowRedirects(false);
+            }
+        });
+        ResponseEntity<String> redirect = noRedirect.getForEntity(baseUrl + "/RDR01", String.class);
+        assertEquals(HttpStatus.FOUND, redirect.getStatusCode());
+        assertEquals("https://example.net/", redirect.getHeaders().getFirst(HttpHeaders.LOCATION));
+
+        // A gravação é assíncrona (write-behind): aguarda o flush do lote
+        String body = null;
+        for (int i = 0; i < 50; i++) {
+            body = http.getForEntity(baseUrl + "/stats/RDR01", String.class).getBody();
+            if (body != null && body.contains("\"hits\":1")) break;
+            Thread.sleep(100);
+        }
+        assertNotNull(body);
+        assertTrue(body.contains("\"hits\":1"), body);
+
+        // O rollup diário é gravado na mesma transação do lote de acessos
+        String summary = http.getForEntity(baseUrl + "/stats/RDR01/summary", String.class).getBody();
+        assertNotNull(summary);
+        assertTrue(summary.contains("\"totalHits\":1"), summary);
+        assertTrue(summary.contains("\"last7DaysHits\":1"), summary);
+
+        // Segundo acesso no mesmo dia incrementa a linha existente (upsert)
+        noRedirect.getForEntity(baseUrl + "/RDR01", String.class);
+        for (int i = 0; i < 50; i++) {
+            summary = http.getForEntity(baseUrl + "/stats/RDR01/summary", String.class).getBody();
+            if (summary != null && summary.contains("\"totalHits\":2")) break;
+            Thread.sleep(100);
+        }
+        assertTrue(summary.contains("\"totalHits\":2"), summary);
+        String global = http.getForEntity(baseUrl + "/stats/summary", String.class).getBody();
+        assertNotNull(global);
+        assertTrue(global.contains("\"last7DaysHits\""), global);
+    }
+
+    @Test
+    @DisplayName("GET /stats?after= percorre todos os links por cursor, sem repetição")
+    void statsCursorPagination() {
+        for (int i = 0; i < 7; i++) {
+            http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://cursor.example/" + i, "CUR0" + i), ShortenResponse.class);
+        }
+        StatsCursorPage firstPage = http.getForObject(baseUrl + "/stats?after=&size=1", StatsCursorPage.class);
+        assertNotNull(firstPage);
+        long total = firstPage.totalElements();
+
+        Set<String> seen = new HashSet<>();
+        String after = "";
+        int pages = 0;
+        while (after != null) {
+            StatsCursorPage page = http.getForObject(baseUrl + "/stats?size=3&includeTotal=false&after={after}", StatsCursorPage.class, after);
+            assertNotNull(page);
+            assertNull(page.totalElements());
+            page.content().forEach(item -> assertTrue(seen.add(item.code()), "repetido: " + item.code()));
+            after = page.nextCursor();
+            assertEquals(page.hasNext(), after != null);
+            pages++;
+        }
+        assertEquals(total, seen.size());
+        assertTrue(pages >= 3);
+        for (int i = 0; i < 7; i++) assertTrue(seen.contains("CUR0" + i));
+    }
+
+    @Test
+    @DisplayName("GET /stats?after=<inválido> (400)")
+    void statsCursorInvalid() {
+        try {
+            http.getForEntity(baseUrl + "/stats?after=abc", ErrorResponse.class);
+            fail("Deveria lançar 400");
+        } catch (HttpClientErrorException.BadRequest ex) {
+            assertTrue(ex.getResponseBodyAsString().contains("Cursor"));
+        }
+    }
+
+    @Test
+    @DisplayName("GET /stats/export transmite todos os links em NDJSON e CSV")
+    void statsExport() {
+        http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://export.example/a", "EXP01"), ShortenResponse.class);
+
+        ResponseEntity<String> ndjson = http.getForEntity(baseUrl + "/stats/export", String.class);
+        assertEquals(HttpStatus.OK, ndjson.getStatusCode());
+        assertEquals("application/x-ndjson", ndjson.getHeaders().getContentType().toString());
+        String[] lines = ndjson.getBody().split("\n");
+        assertTrue(Arrays.stream(lines).allMatch(l -> l.startsWith("{") && l.endsWith("}")));
+        assertTrue(ndjson.getBody().contains("\"code\":\"EXP01\""));
+
+        ResponseEntity<String> csv = http.getForEntity(baseUrl + "/stats/export?format=csv", String.class);
+        assertEquals(HttpStatus.OK, csv.getStatusCode());
+        assertTrue(csv.getBody().startsWith("code,originalUrl,hits\n"));
+        assertTrue(csv.getBody().contains("EXP01,https://export.example/a,0"), csv.getBody());
+        assertEquals(lines.length + 1, csv.getBody().split("\n").length);
+
+        try {
+            http.getForEntity(baseUrl + "/stats/export?format=xml", String.class);
+            fail("Deveria lançar 400");
+        } catch (HttpClientErrorException.BadRequest ex) {
+            assertTrue(ex.getResponseBodyAsString().contains("Formato"));
+        }
+    }
+
+    @Test
+    @DisplayName("POST /shorten/batch retorna resultado por item e os links redirecionam")
+    void shortenBatch() {
+        http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://batch.example/taken", "BAT00"), ShortenResponse.class);
+
+        BatchShortenRequest req = new BatchShortenRequest(List.of(
+                new ShortenRequest("https://batch.example/1", null),
+                new ShortenRequest("https://batch.example/2", "BAT01"),
+                new ShortenRequest("https://batch.example/other", "BAT00"),
+                new ShortenRequest("notaurl", null)));
+        ResponseEntity<BatchShortenResponse> resp = http.postForEntity(baseUrl + "/shorten/batch", req, BatchShortenResponse.class);
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        BatchShortenResponse body = resp.getBody();
+        assertNotNull(body);
+        assertEquals(2, body.created());
+        assertEquals(2, body.failed());
+        assertEquals(201, body.items().get(0).status());
+        assertEquals(201, body.items().get(1).status());
+        assertEquals("BAT01", body.items().get(1).result().code());
+        assertEquals(409, body.items().get(2).status());
+        assertEquals(400, body.items().get(3).status());
+
+        // Reenvio idempotente: nada novo é criado
+        BatchShortenResponse again = http.postForEntity(baseUrl + "/shorten/batch", req, BatchShortenResponse.class).getBody();
+        assertEquals(0, again.created());
+        assertEquals(2, again.existing());
+        assertEquals(body.items().get(0).result().code(), again.items().get(0).result().code());
+
+        ResponseEntity<StatsResponse> stats = http.getForEntity(baseUrl + "/stats/BAT01", StatsResponse.class);
+        assertEquals("https://batch.example/2", stats.getBody().originalUrl());
+    }
+
+    @Test
+    @DisplayName("POST /shorten/import importa CSV em multipart e reporta erros por linha")
+    void importCsv() {
+        String csv = "url,code\nhttps://import.example/1,IMP01\nhttps://import.example/2,\nnotaurl,\n";
+        LinkedMultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("file", new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "links.csv";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        ResponseEntity<LinkImportResponse> resp = http.postForEntity(baseUrl + "/shorten/import", new HttpEntity<>(form, headers), LinkImportResponse.class);
+
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        LinkImportResponse body = resp.getBody();
+        assertNotNull(body);
+        assertEquals(3, body.records());
+        assertEquals(2, body.created());
+        assertEquals(1, body.failed());
+        assertEquals(4L, body.errors().get(0).line());
+
+        ResponseEntity<StatsResponse> stats = http.getForEntity(baseUrl + "/stats/IMP01", StatsResponse.class);
+        assertEquals("https://import.example/1", stats.getBody().originalUrl());
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("original_url_hash é gravado e a idempotência por URL passa pelo hash")
+    void originalUrlHashLookup() {
+        String url = "https://hash.example/path?q=1";
+        ShortenResponse first = http.postForEntity(baseUrl + "/shorten", new ShortenRequest(url, null), ShortenResponse.class).getBody();
+        ShortenResponse second = http.postForEntity(baseUrl + "/shorten", new ShortenRequest(url, null), ShortenResponse.class).getBody();
+        assertEquals(first.code(), second.code());
+
+        Long stored = jdbcTemplate.queryForObject("SELECT original_url_hash FROM short_urls WHERE code = ?", Long.class, first.code());
+        assertEquals(UrlHash.of(url), stored);
+    }
+
+    @Autowired
+    private ShortUrlRepository shortUrlRepository;
+
+    @Autowired
+    private ShortUrlAccessRepository accessRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("insertAll desanexa só as entidades do lote, sem limpar o contexto do chamador")
+    void insertAllKeepsCallerEntitiesManaged() {
+        ShortenResponse created = http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://batch-insert.example/a", "BIN01"), ShortenResponse.class).getBody();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ShortUrl loaded = shortUrlRepository.findByCode(created.code()).orElseThrow();
+            List<ShortUrlAccess> accesses = new ArrayList<>();
+            // Mais de um lote JDBC (batch_size=50)
+            for (int i = 0; i < 120; i++) {
+                accesses.add(new ShortUrlAccess(loaded, Instant.now(), "test", null));
+            }
+            accessRepository.insertAll(accesses);
+
+            assertTrue(entityManager.contains(loaded));
+            assertTrue(accesses.stream().noneMatch(entityManager::contains));
+        });
+        assertEquals(120L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM short_url_accesses WHERE short_url_id = ?", Long.class, created.id()));
+    }
+
+    @Autowired
+    private HitCounter hitCounter;
+
+    @Test
+    @DisplayName("reconciliação soma a hit_count os hits não contados dos dias encerrados, inclusive em links ativos")
+    void hitCountReconcile() {
+        ShortenResponse quiet = http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://reconcile.example/quiet", "REC01"), ShortenResponse.class).getBody();
+        ShortenResponse active = http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://reconcile.example/active", "REC02"), ShortenResponse.class).getBody();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        // Deltas perdidos numa queda: o rollup tem os acessos (e os marca como não contados), hit_count não
+        String insert = "INSERT INTO short_url_daily_hits (short_url_id, access_date, hits, uncounted_hits) VALUES (?, ?, ?, ?)";
+        jdbcTemplate.update(insert, quiet.id(), today.minusDays(3), 4, 4);
+        jdbcTemplate.update(insert, active.id(), today.minusDays(3), 5, 2);
+        jdbcTemplate.update(insert, active.id(), today, 1, 1);
+
+        assertTrue(hitCounter.reconcile() >= 2);
+
+        assertEquals(4L, jdbcTemplate.queryForObject("SELECT hit_count FROM short_urls WHERE id = ?", Long.class, quiet.id()));
+        // Acessado hoje: o dia encerrado é corrigido; o de hoje pode ter delta pendente e fica para depois
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT hit_count FROM short_urls WHERE id = ?", Long.class, active.id()));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT SUM(uncounted_hits) FROM short_url_daily_hits WHERE short_url_id IN (?, ?)", Long.class, quiet.id(), active.id()));
+        // Segunda execução não soma de novo
+        assertEquals(0, hitCounter.reconcile());
+    }
+
+    @Autowired
+    private AccessRetentionJob accessRetentionJob;
+
+    @Test
+    @DisplayName("retenção compacta meses expirados no rollup diário antes de descartá-los")
+    void accessRetentionCompactsBeforePurge() {
+        ShortenResponse created = http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://retention.example/a", "RET01"), ShortenResponse.class).getBody();
+        YearMonth now = YearMonth.of(2026, 1);
+        // Horários UTC, como gravados pelo Hibernate (hibernate.jdbc.time_zone=UTC)
+        LocalDateTime expired = LocalDateTime.parse("2024-12-15T10:00:00");
+        LocalDateTime kept = LocalDateTime.parse("2025-01-15T10:00:00");
+        for (LocalDateTime at : List.of(expired, expired, expired, kept)) {
+            jdbcTemplate.update("INSERT INTO short_url_accesses (id, short_url_id, accessed_at) VALUES (nextval('short_url_accesses_seq'), ?, ?)", created.id(), at);
+        }
+        // Rollup defasado em um dia expirado: a compactação completa com a contagem bruta
+        jdbcTemplate.update("INSERT INTO short_url_daily_hits (short_url_id, access_date, hits) VALUES (?, DATE '2024-12-15', 1)", created.id());
+
+        assertEquals(1, accessRetentionJob.purgeExpired(now));
+
+        assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT hits FROM short_url_daily_hits WHERE short_url_id = ? AND access_date = DATE '2024-12-15'", Long.class, created.id()));
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM short_url_accesses WHERE accessed_at < TIMESTAMP '2025-01-01 00:00:00'", Long.class));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM short_url_accesses WHERE short_url_id = ?", Long.class, created.id()));
+        // Segunda execução não encontra nada a descartar
+        assertEquals(0, accessRetentionJob.purgeExpired(now));
+    }
+
+    @Test
+    @DisplayName("GET /ranking/trending reflete redirecionamentos recentes e valida a janela")
+    void trendingRanking() {
+        http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://trend.example/a", "TRD01"), ShortenResponse.class);
+        RestTemplate noRedirect = new RestTemplate(new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                connection.setInstanceFollowRedirects(false);
+            }
+        });
+        for (int i = 0; i < 50; i++) {
+            noRedirect.getForEntity(baseUrl + "/TRD01", String.class);
+        }
+
+        ResponseEntity<RankingItem[]> resp = http.getForEntity(baseUrl + "/ranking/trending?window=5m&limit=10", RankingItem[].class);
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        assertEquals("TRD01", resp.getBody()[0].code());
+        assertEquals(50L, resp.getBody()[0].hits());
+
+        try {
+            http.getForEntity(baseUrl + "/ranking/trending?window=2h", String.class);
+            fail("Deveria lançar 400");
+        } catch (HttpClientErrorException.BadRequest ex) {
+            assertTrue(ex.getResponseBodyAsString().contains("5m, 1h, 1d"), ex.getResponseBodyAsString());
+        }
+    }
+
+    @Test
+    @DisplayName("GET /ranking/stream envia snapshot na conexão e delta após novos acessos")
+    void rankingStream() throws Exception {
+        http.postForEntity(baseUrl + "/shorten", new ShortenRequest("https://stream.example/a", "SSE01"), ShortenResponse.class);
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + "/ranking/stream").openConnection();
+        conn.setRequestProperty("Accept", "text/event-stream");
+        conn.setReadTimeout(15_000);
+        assertEquals(200, conn.getResponseCode());
+        assertTrue(conn.getContentType().startsWith("text/event-stream"), conn.getContentType());
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("snapshot", nextEvent(reader)[0]);
+
+            RestTemplate noRedirect = new RestTemplate(new SimpleClientHttpRequestFactory() {
+                @Override
+                protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                    super.prepareConnection(connection, httpMethod);
+                    connection.setInstanceFollowRedirects(false);
+                }
+            });
+            noRedirect.getForEntity(baseUrl + "/SSE01", String.class);
+
+            String[] event;
+            do {
+                event = nextEvent(reader);
+            } while (!event[1].contains("SSE01"));
+            assertEquals("delta", event[0]);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    // Lê o próximo evento SSE (ignora comentários de keep-alive): {nome, dados}
+    private static String[] nextEvent(BufferedReader reader) throws IOException {
+        String name = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (name != null) return new String[]{name, data.toString()};
+                continue;
+            }
+            if (line.startsWith("event:")) name = line.substring(6).trim();
+            else if (line.startsWith("data:")) data.append(line.substring(5));
+        }
+        throw new EOFException("Fluxo SSE encerrado");
+    }
+
+    @Test
+    @DisplayName("GET /ranking e /stats/summary respondem 304 com If-None-Match do ETag atual")
+    void conditionalGet() {
+        for (String path : List.of("/ranking", "/stats/summary")) {
+            ResponseEntity<String> first = http.getForEntity(baseUrl + path, String.class);
+            assertEquals(HttpStatus.OK, first.getStatusCode());
+            assertNotNull(first.getHeaders().getCacheControl(), path);
+            // Acessos gravados por outros testes podem avançar a versão entre as duas chamadas
+            HttpStatusCode status = null;
+            String etag = first.getHeaders().getETag();
+            for (int i = 0; i < 5 && status != HttpStatus.NOT_MODIFIED; i++) {
+                assertNotNull(etag, path);
+                HttpHeaders headers = new HttpHeaders();
+                headers.setIfNoneMatch(etag);
+                ResponseEntity<String> again = http.exchange(baseUrl + path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+                status = again.getStatusCode();
+                if (status == HttpStatus.NOT_MODIFIED) {
+                    assertNull(again.getBody());
+                    assertEquals(etag, again.getHeaders().getETag());
+                }
+                etag = again.getHeaders().getETag();
+            }
+            assertEquals(HttpStatus.NOT_MODIFIED, status, path);
+        }
+    }
+
+    @Test
+    @DisplayName("GET /actuator/prometheus expõe as métricas shortener.* com buckets de histograma")
+    void prometheusMetrics() {
+        ShortenRequest req = new ShortenRequest("https://example.org/metrics", null);
+        ResponseEntity<ShortenResponse> created = http.postForEntity(baseUrl + "/shorten", req, ShortenResponse.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        try {
+            http.getForEntity(baseUrl + "/zzzz9", String.class);
+        } catch (HttpClientErrorException.NotFound expected) {
+            // O código inexistente passa pelos caches e cai no banco
+        }
+
+        ResponseEntity<String> scrape = http.getForEntity(baseUrl + "/actuator/prometheus", String.class);
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        String body = scrape.getBody();
+        assertNotNull(body);
+        assertTrue(body.contains("shortener_cache_lookups_total{"), body);
+        assertTrue(body.contains("index=\"byUrl\""), body);
+        assertTrue(body.contains("cache=\"topRanking\""), body);
+        assertTrue(body.contains("shortener_db_fallback_seconds_bucket{"), body);
+        assertTrue(body.contains("shortener_ranking_reload_seconds_count{"), body);
+        assertTrue(body.contains("shortener_code_generation_retries_total{"), body);
+    }
+}
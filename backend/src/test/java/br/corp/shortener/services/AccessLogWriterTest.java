@@ -0,0 +1,195 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.entities.ShortUrlAccess;
+import br.corp.shortener.entities.ShortUrlDailyHits;
+import br.corp.shortener.repositories.ShortUrlAccessRepository;
+import br.corp.shortener.repositories.ShortUrlDailyHitsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AccessLogWriterTest {
+
+    @Mock
+    private ShortUrlAccessRepository accessRepository;
+
+    @Mock
+    private ShortUrlDailyHitsRepository dailyHitsRepository;
+
+    @Mock
+    private TopRankingCache topRankingCache;
+
+    @Mock
+    private HitCounter hitCounter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AccessLogWriter writer;
+
+    private final List<ShortUrlAccess> persisted = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setup() {
+        writer = new AccessLogWriter(accessRepository, dailyHitsRepository, topRankingCache, hitCounter, transactionManager);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "batchSize", 10);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(writer, "overflowPolicy", AccessLogWriter.OverflowPolicy.DROP);
+        when(accessRepository.insertAll(anyList())).thenAnswer(inv -> {
+            List<ShortUrlAccess> batch = inv.getArgument(0);
+            persisted.addAll(batch);
+            return batch;
+        });
+    }
+
+    private static ShortUrlAccess access(String code) {
+        ShortUrl su = new ShortUrl("https://ex.com/" + code, code, Instant.now());
+        return new ShortUrlAccess(su, Instant.now(), "UA", null);
+    }
+
+    @Test
+    @DisplayName("modo síncrono grava imediatamente e atualiza o ranking")
+    void syncMode_writesImmediately() {
+        ReflectionTestUtils.setField(writer, "asyncEnabled", false);
+        writer.start();
+
+        assertTrue(writer.enqueue(access("AAAAA")));
+
+        assertEquals(1, persisted.size());
+        verify(topRankingCache).onAccess(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("modo assíncrono grava em lotes e drena tudo no shutdown")
+    void asyncMode_drainsOnShutdown() {
+        ReflectionTestUtils.setField(writer, "asyncEnabled", true);
+        writer.start();
+
+        for (int i = 0; i < 35; i++) {
+            assertTrue(writer.enqueue(access("C" + String.format("%04d", i))));
+        }
+        writer.shutdown();
+
+        assertEquals(35, persisted.size());
+        assertEquals(0, writer.pending());
+        verify(topRankingCache, times(35)).onAccess(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("lote é agregado por link e dia UTC para o rollup diário")
+    void dailyDeltas_aggregatePerLinkAndDay() {
+        ShortUrl a = new ShortUrl("https://ex.com/a", "AAAAA", Instant.now());
+        a.setId(1L);
+        ShortUrl b = new ShortUrl("https://ex.com/b", "BBBBB", Instant.now());
+        b.setId(2L);
+        Instant day1 = Instant.parse("2024-05-01T23:59:00Z");
+        Instant day2 = Instant.parse("2024-05-02T00:01:00Z");
+        List<ShortUrlAccess> batch = List.of(
+                new ShortUrlAccess(a, day1, "UA", null),
+                new ShortUrlAccess(a, day1, "UA", null),
+                new ShortUrlAccess(a, day2, "UA", null),
+                new ShortUrlAccess(b, day2, "UA", null));
+
+        List<ShortUrlDailyHits> deltas = AccessLogWriter.dailyDeltas(batch);
+
+        assertEquals(3, deltas.size());
+        assertTrue(deltas.stream().anyMatch(d -> d.getShortUrlId() == 1L && d.getDay().toString().equals("2024-05-01") && d.getHits() == 2));
+        assertTrue(deltas.stream().anyMatch(d -> d.getShortUrlId() == 1L && d.getDay().toString().equals("2024-05-02") && d.getHits() == 1));
+        assertTrue(deltas.stream().anyMatch(d -> d.getShortUrlId() == 2L && d.getHits() == 1));
+    }
+
+    @Test
+    @DisplayName("política DROP descarta quando a fila está cheia")
+    void dropPolicy_discardsWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(accessRepository.insertAll(anyList())).thenAnswer(inv -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<ShortUrlAccess> batch = inv.getArgument(0);
+            persisted.addAll(batch);
+            return batch;
+        });
+        ReflectionTestUtils.setField(writer, "asyncEnabled", true);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 1);
+        writer.start();
+
+        assertTrue(writer.enqueue(access("AAAA1")));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.enqueue(access("AAAA2")));
+        assertFalse(writer.enqueue(access("AAAA3")));
+        assertEquals(1, writer.droppedCount());
+
+        release.countDown();
+        writer.shutdown();
+        assertEquals(2, persisted.size());
+    }
+
+    @Test
+    @DisplayName("lote acumula eventos até o intervalo desde o primeiro evento")
+    void asyncMode_accumulatesUntilInterval() throws Exception {
+        ReflectionTestUtils.setField(writer, "asyncEnabled", true);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 300L);
+        writer.start();
+
+        assertTrue(writer.enqueue(access("AAAA1")));
+        Thread.sleep(50);
+        assertTrue(writer.enqueue(access("AAAA2")));
+        verify(accessRepository, timeout(2_000).times(1)).insertAll(anyList());
+        writer.shutdown();
+
+        assertEquals(2, persisted.size());
+        verify(accessRepository, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("lote que falha é regravado em vez de descartado")
+    void asyncMode_retriesFailedBatch() {
+        List<Long> idsOnCall = Collections.synchronizedList(new ArrayList<>());
+        when(accessRepository.insertAll(anyList()))
+                .thenAnswer(inv -> {
+                    List<ShortUrlAccess> batch = inv.getArgument(0);
+                    batch.forEach(a -> a.setId(1L)); // a sequência atribui ids antes do rollback
+                    throw new IllegalStateException("db down");
+                })
+                .thenAnswer(inv -> {
+                    List<ShortUrlAccess> batch = inv.getArgument(0);
+                    batch.forEach(a -> idsOnCall.add(a.getId()));
+                    persisted.addAll(batch);
+                    return batch;
+                });
+        ReflectionTestUtils.setField(writer, "asyncEnabled", true);
+        ReflectionTestUtils.setField(writer, "maxRetries", 3);
+        writer.start();
+
+        assertTrue(writer.enqueue(access("AAAA1")));
+        verify(accessRepository, timeout(2_000).times(2)).insertAll(anyList());
+        writer.shutdown();
+
+        assertEquals(1, persisted.size());
+        assertNull(idsOnCall.get(0));
+        assertEquals(0, writer.droppedCount());
+    }
+}
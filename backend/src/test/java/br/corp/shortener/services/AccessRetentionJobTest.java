@@ -0,0 +1,115 @@
+package br.corp.shortener.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Caminho do PostgreSQL (partições); o DELETE do H2 é coberto pelo teste de integração
+class AccessRetentionJobTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private AccessRetentionJob job;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        job = new AccessRetentionJob(jdbcTemplate, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(job, "retentionMonths", 12);
+        ReflectionTestUtils.setField(job, "premakeMonths", 2);
+    }
+
+    @Test
+    @DisplayName("PostgreSQL: compacta cada mês expirado, descarta a partição e limpa a default com limites UTC")
+    void postgres_compactsAndDropsPartitions() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class)))
+                .thenReturn(LocalDateTime.parse("2024-11-30T23:30:00"));
+
+        assertEquals(2, job.purgeExpired(YearMonth.of(2026, 1)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> from = ArgumentCaptor.forClass(Object.class);
+        ArgumentCaptor<Object> to = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(4)).update(sql.capture(), from.capture(), to.capture());
+        assertTrue(sql.getAllValues().get(0).contains("ON CONFLICT (short_url_id, access_date)"));
+        assertTrue(sql.getAllValues().get(1).startsWith("DELETE FROM short_url_accesses"));
+        // Limites do mês como horário UTC, sem passar pelo fuso da JVM
+        assertEquals(List.of(LocalDateTime.parse("2024-11-01T00:00"), LocalDateTime.parse("2024-11-01T00:00"),
+                        LocalDateTime.parse("2024-12-01T00:00"), LocalDateTime.parse("2024-12-01T00:00")),
+                from.getAllValues());
+        assertEquals(LocalDateTime.parse("2025-01-01T00:00"), to.getAllValues().get(3));
+
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS short_url_accesses_p202411");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS short_url_accesses_p202412");
+        verify(jdbcTemplate, never()).execute("DROP TABLE IF EXISTS short_url_accesses_p202501");
+    }
+
+    @Test
+    @DisplayName("PostgreSQL: cria as partições do mês atual e dos próximos meses")
+    void postgres_premakesPartitions() {
+        job.ensurePartitions(YearMonth.of(2025, 12));
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS short_url_accesses_p202512 PARTITION OF short_url_accesses"
+                + " FOR VALUES FROM ('2025-12-01') TO ('2026-01-01')");
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS short_url_accesses_p202601 "));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS short_url_accesses_p202602 "));
+    }
+
+    @Test
+    @DisplayName("PostgreSQL: linhas do mês na partição default são movidas para a partição nova")
+    void postgres_movesDefaultRowsIntoNewPartition() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS"), eq(Boolean.class),
+                eq(LocalDateTime.parse("2026-01-01T00:00")), any())).thenReturn(true);
+
+        job.ensurePartitions(YearMonth.of(2025, 12));
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute(startsWith("CREATE TEMP TABLE short_url_accesses_moving"));
+        order.verify(jdbcTemplate).update(startsWith("WITH moved AS (DELETE FROM short_url_accesses_default"),
+                eq(LocalDateTime.parse("2026-01-01T00:00")), eq(LocalDateTime.parse("2026-02-01T00:00")));
+        order.verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS short_url_accesses_p202601 "));
+        order.verify(jdbcTemplate).execute("INSERT INTO short_url_accesses SELECT * FROM short_url_accesses_moving");
+        verify(jdbcTemplate, times(1)).execute(startsWith("CREATE TEMP TABLE"));
+    }
+
+    @Test
+    @DisplayName("PostgreSQL: falha ao criar a partição de um mês não impede os demais nem a retenção")
+    void postgres_partitionFailureDoesNotStopRetention() {
+        doThrow(new IllegalStateException("updated partition constraint for default partition would be violated"))
+                .when(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS short_url_accesses_p202512 "));
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class)))
+                .thenReturn(LocalDateTime.parse("2024-11-15T10:00:00"));
+        ReflectionTestUtils.setField(job, "enabled", true);
+
+        job.ensurePartitions(YearMonth.of(2025, 12));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS short_url_accesses_p202601 "));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS short_url_accesses_p202602 "));
+
+        job.run();
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS short_url_accesses_p202411");
+    }
+
+    @Test
+    @DisplayName("tabela vazia não descarta nada")
+    void emptyTable() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class))).thenReturn(null);
+
+        assertEquals(0, job.purgeExpired(YearMonth.of(2025, 12)));
+        verify(jdbcTemplate, never()).execute(startsWith("DROP"));
+    }
+}
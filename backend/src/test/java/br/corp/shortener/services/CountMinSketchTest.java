@@ -0,0 +1,43 @@
+package br.corp.shortener.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    @DisplayName("estimativa nunca fica abaixo do real e respeita o erro epsilon * N")
+    void estimateWithinErrorBound() {
+        double epsilon = 0.001;
+        CountMinSketch sketch = new CountMinSketch(epsilon, 0.01);
+        long total = 0;
+        // Distribuição com cauda longa: código i recebe 1 + 1000 / (i + 1) acessos
+        for (int i = 0; i < 10_000; i++) {
+            long hits = 1 + 1_000 / (i + 1);
+            sketch.add("code-" + i, hits);
+            total += hits;
+        }
+
+        long bound = (long) Math.ceil(epsilon * total);
+        int outOfBound = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long real = 1 + 1_000 / (i + 1);
+            long estimate = sketch.estimate("code-" + i);
+            assertTrue(estimate >= real, "subestimou code-" + i);
+            if (estimate - real > bound) outOfBound++;
+        }
+        // delta = 1% das chaves pode exceder o limite
+        assertTrue(outOfBound <= 100, "outOfBound=" + outOfBound);
+    }
+
+    @Test
+    @DisplayName("dimensões derivadas de epsilon e delta")
+    void dimensions() {
+        CountMinSketch sketch = new CountMinSketch(0.0001, 0.01);
+        assertEquals(27_183, sketch.width());
+        assertEquals(5, sketch.depth());
+        assertEquals(0, sketch.estimate("missing"));
+    }
+}
@@ -0,0 +1,133 @@
+package br.corp.shortener.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HitCounterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private HitCounter counter;
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+    private final List<long[]> written = new ArrayList<>();
+    private final List<Object> counted = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(inv -> record(inv.getArgument(0), inv.getArgument(1)));
+        counter = new HitCounter(jdbcTemplate, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(counter, "batchSize", 100);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int[][] record(String sql, Collection<?> rows) {
+        if (sql.startsWith("UPDATE short_urls")) {
+            written.addAll((Collection<long[]>) rows);
+        } else {
+            counted.addAll(rows);
+        }
+        return new int[0][];
+    }
+
+    @Test
+    @DisplayName("flush grava o mapa aposentado no ciclo anterior e mantém pendentes visíveis")
+    void flushWritesPreviousCycle() {
+        counter.add(1L, DAY, 3);
+        counter.add(1L, DAY.plusDays(1), 2);
+        counter.add(2L, DAY, 1);
+        assertEquals(5, counter.pending(1L));
+
+        counter.flush(); // aposenta o mapa ativo; nada a gravar ainda
+        assertTrue(written.isEmpty());
+        assertEquals(5, counter.pending(1L));
+
+        counter.add(1L, DAY, 7);
+        counter.flush(); // grava o ciclo anterior
+        assertEquals(2, written.size());
+        assertArrayEquals(new long[]{1L, 5L}, written.get(0));
+        assertArrayEquals(new long[]{2L, 1L}, written.get(1));
+        assertEquals(3, counted.size(), "um desconto de uncounted_hits por link e dia");
+        assertEquals(7, counter.pending(1L));
+        assertEquals(0, counter.pending(2L));
+    }
+
+    @Test
+    @DisplayName("falha no UPDATE devolve os deltas para o próximo ciclo")
+    @SuppressWarnings("unchecked")
+    void failedFlushIsRetried() {
+        counter.add(1L, DAY, 4);
+        counter.flush();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("db down"));
+        counter.flush();
+        assertEquals(4, counter.pending(1L));
+
+        reset(jdbcTemplate);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(inv -> record(inv.getArgument(0), inv.getArgument(1)));
+        counter.flush();
+        assertArrayEquals(new long[]{1L, 4L}, written.get(0));
+        assertEquals(0, counter.pending(1L));
+    }
+
+    @Test
+    @DisplayName("shutdown grava os dois mapas")
+    void shutdownFlushesEverything() {
+        counter.add(1L, DAY, 1);
+        counter.flush();
+        counter.add(1L, DAY, 2);
+
+        counter.shutdown();
+
+        assertEquals(3, written.stream().mapToLong(d -> d[1]).sum());
+        assertEquals(0, counter.pending(1L));
+    }
+
+    @Test
+    @DisplayName("reconcile soma a hit_count só os dias cuja diferença não mudou desde a leitura")
+    @SuppressWarnings("unchecked")
+    void reconcileAddsSettledDifferences() {
+        Object[][] rows = {{2L, DAY, 4L}, {1L, DAY, 3L}, {1L, DAY.plusDays(1), -1L}, {3L, DAY, 9L}};
+        when(jdbcTemplate.query(startsWith("SELECT short_url_id"), any(RowMapper.class), any(LocalDate.class)))
+                .thenAnswer(inv -> {
+                    RowMapper<Object> mapper = inv.getArgument(1);
+                    List<Object> mapped = new ArrayList<>();
+                    for (Object[] row : rows) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getLong(1)).thenReturn((Long) row[0]);
+                        when(rs.getObject(2, LocalDate.class)).thenReturn((LocalDate) row[1]);
+                        when(rs.getLong(3)).thenReturn((Long) row[2]);
+                        mapped.add(mapper.mapRow(rs, mapped.size()));
+                    }
+                    return mapped;
+                });
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE short_url_daily_hits"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                // Ordenado por link e dia; o último (link 3) mudou entre a leitura e o UPDATE
+                .thenReturn(new int[][]{{1, 1, 1, 0}});
+
+        assertEquals(2, counter.reconcile());
+
+        assertEquals(2, written.size());
+        assertArrayEquals(new long[]{1L, 2L}, written.get(0));
+        assertArrayEquals(new long[]{2L, 4L}, written.get(1));
+    }
+}
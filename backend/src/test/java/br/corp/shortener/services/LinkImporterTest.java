@@ -0,0 +1,156 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.LinkImportResponse;
+import br.corp.shortener.dto.ShortenRequest;
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.exceptions.InvalidImportFileException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class LinkImporterTest {
+
+    private UrlShortenerService service;
+    private LinkImporter importer;
+    private final List<List<ShortenRequest>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        service = mock(UrlShortenerService.class);
+        // Simula o serviço: URL sem http(s) é inválida, o resto é criado
+        when(service.shortenBatch(anyList())).thenAnswer(inv -> {
+            List<ShortenRequest> chunk = List.copyOf((List<ShortenRequest>) inv.getArgument(0));
+            chunks.add(chunk);
+            List<BatchItemResult> results = new ArrayList<>();
+            for (ShortenRequest r : chunk) {
+                results.add(r.url() != null && r.url().startsWith("http")
+                        ? BatchItemResult.created(new ShortUrl(r.url(), r.code(), Instant.now()))
+                        : BatchItemResult.invalid("url deve usar http ou https"));
+            }
+            return results;
+        });
+        importer = new LinkImporter(service, new ObjectMapper());
+        ReflectionTestUtils.setField(importer, "chunkSize", 2);
+        ReflectionTestUtils.setField(importer, "maxReportedErrors", 10);
+    }
+
+    private static InputStream text(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream gzip(String s) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @Test
+    @DisplayName("NDJSON gzip é lido em blocos e erros trazem o número da linha")
+    void ndjsonGzipInChunks() throws Exception {
+        String file = """
+                {"url":"https://ex.com/1"}
+                {"url":"https://ex.com/2","code":"ABCDE"}
+
+                {"originalUrl":"https://ex.com/3"}
+                not json
+                {"url":"ftp://ex.com/4"}
+                """;
+
+        LinkImportResponse report = importer.importLinks(gzip(file), StatsExporter.Format.NDJSON);
+
+        assertEquals(5, report.records());
+        assertEquals(3, report.created());
+        assertEquals(2, report.failed());
+        assertEquals(List.of(5L, 6L), report.errors().stream().map(e -> e.line()).toList());
+        // Blocos de 2: [1,2], [3,4] e o restante no fim
+        assertEquals(List.of(2, 2), chunks.stream().map(List::size).toList());
+        assertEquals("ABCDE", chunks.get(0).get(1).code());
+        assertEquals("https://ex.com/3", chunks.get(1).get(0).url());
+    }
+
+    @Test
+    @DisplayName("CSV com aspas, quebra de linha no campo e arquivo de exportação")
+    void csvRfc4180() throws Exception {
+        String file = "code,originalUrl,hits\n"
+                + "AAAAA,https://ex.com/a,3\n"
+                + ",\"https://ex.com/?q=1,2\",0\n"
+                + "BBBBB,\"https://ex.com/multi\nline\",0\n"
+                + "CCCCC,https://ex.com/c,0\n";
+
+        LinkImportResponse report = importer.importLinks(text(file), StatsExporter.Format.CSV);
+
+        assertEquals(4, report.records());
+        List<ShortenRequest> all = chunks.stream().flatMap(List::stream).toList();
+        assertEquals(new ShortenRequest("https://ex.com/a", "AAAAA"), all.get(0));
+        assertEquals(new ShortenRequest("https://ex.com/?q=1,2", null), all.get(1));
+        assertEquals("https://ex.com/multi\nline", all.get(2).url());
+        assertEquals(new ShortenRequest("https://ex.com/c", "CCCCC"), all.get(3));
+    }
+
+    @Test
+    @DisplayName("CSV sem coluna de URL é rejeitado; erros além do limite são truncados")
+    void csvHeaderAndErrorLimit() throws Exception {
+        assertThrows(InvalidImportFileException.class,
+                () -> importer.importLinks(text("code,hits\nAAAAA,1\n"), StatsExporter.Format.CSV));
+
+        ReflectionTestUtils.setField(importer, "maxReportedErrors", 1);
+        LinkImportResponse report = importer.importLinks(text("url\nx\ny\n"), StatsExporter.Format.CSV);
+        assertEquals(2, report.failed());
+        assertEquals(1, report.errors().size());
+        assertEquals(2L, report.errors().get(0).line());
+        assertTrue(report.errorsTruncated());
+    }
+
+    @Test
+    @DisplayName("aspa não fechada ou linha longa demais vira erro na linha sem consumir o resto do arquivo")
+    void oversizedRecordsAreRejected() throws Exception {
+        ReflectionTestUtils.setField(importer, "maxRecordChars", 40);
+        String csv = "url,code\n"
+                + "https://ex.com/a,AAAAA\n"
+                + "\"https://ex.com/unterminated,BBBBB\n"
+                + "https://ex.com/b,CCCCC\n"
+                + "https://ex.com/c,DDDDD\n"
+                + "https://ex.com/d,EEEEE\n";
+
+        LinkImportResponse report = importer.importLinks(text(csv), StatsExporter.Format.CSV);
+
+        // O registro aberto na linha 3 passa do limite na linha 4; a leitura volta na linha 5
+        assertEquals(1, report.errors().size());
+        assertEquals(3L, report.errors().get(0).line());
+        List<String> urls = chunks.stream().flatMap(List::stream).map(ShortenRequest::url).toList();
+        assertEquals(List.of("https://ex.com/a", "https://ex.com/c", "https://ex.com/d"), urls);
+
+        chunks.clear();
+        String ndjson = "{\"url\":\"https://ex.com/" + "x".repeat(100) + "\"}\n{\"url\":\"https://ex.com/ok\"}\n";
+        report = importer.importLinks(text(ndjson), StatsExporter.Format.NDJSON);
+        assertEquals(1L, report.errors().get(0).line());
+        assertEquals(1, report.created());
+    }
+
+    @Test
+    @DisplayName("gzip que descompacta além do limite é rejeitado")
+    void gzipBombIsRejected() throws Exception {
+        ReflectionTestUtils.setField(importer, "maxDecompressedBytes", 1_000L);
+        String file = "{\"url\":\"https://ex.com/1\"}\n".repeat(200);
+
+        assertThrows(InvalidImportFileException.class, () -> importer.importLinks(gzip(file), StatsExporter.Format.NDJSON));
+    }
+}
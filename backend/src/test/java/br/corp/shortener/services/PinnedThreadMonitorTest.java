@@ -0,0 +1,41 @@
+package br.corp.shortener.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinnedThreadMonitorTest {
+
+    private final PinnedThreadMonitor monitor = new PinnedThreadMonitor();
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    @DisplayName("registra thread virtual bloqueada dentro de synchronized")
+    void detectsPinnedVirtualThread() throws Exception {
+        ReflectionTestUtils.setField(monitor, "thresholdMs", 5L);
+        monitor.start();
+
+        Object lock = new Object();
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (monitor.pinnedEvents() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+            Thread.sleep(200);
+        }
+        assertTrue(monitor.pinnedEvents() > 0);
+    }
+}
@@ -0,0 +1,252 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.RankingDelta;
+import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.dto.RankingPosition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RankingStreamTest {
+
+    private final TopRankingCache cache = mock(TopRankingCache.class);
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicReference<List<RankingItem>> top = new AtomicReference<>(List.of());
+    private final List<RecordingEmitter> emitters = Collections.synchronizedList(new ArrayList<>());
+    private RankingStream stream;
+    private volatile boolean stallNewSubscribers;
+
+    @AfterEach
+    void tearDown() {
+        emitters.forEach(e -> e.release.countDown());
+        if (stream != null) stream.shutdown();
+    }
+
+    private RankingStream newStream(int maxPendingFrames) {
+        when(cache.version()).thenAnswer(inv -> version.get());
+        when(cache.getTop()).thenAnswer(inv -> top.get());
+        stream = new RankingStream(cache, new ObjectMapper()) {
+            @Override
+            SseEmitter createEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitter.stalled = stallNewSubscribers;
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(stream, "maxSubscribers", 100);
+        ReflectionTestUtils.setField(stream, "heartbeatMs", 60_000L);
+        ReflectionTestUtils.setField(stream, "maxPendingFrames", maxPendingFrames);
+        ReflectionTestUtils.setField(stream, "sendTimeoutMs", 60_000L);
+        return stream;
+    }
+
+    private void change(RankingItem... items) {
+        top.set(List.of(items));
+        version.incrementAndGet();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condição não atingida");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @DisplayName("conexão nova não consome a mudança pendente: os assinantes atuais recebem o delta")
+    void newSubscriberDoesNotSwallowDelta() throws Exception {
+        newStream(16);
+        change(item("AAAAA", 1));
+        stream.subscribe();
+        await(() -> stream.subscriberCount() == 1 && emitters.get(0).events().size() == 1);
+
+        change(item("AAAAA", 1), item("BBBBB", 1));
+        stream.subscribe();
+        await(() -> stream.subscriberCount() == 2 && emitters.get(0).events().size() == 2);
+
+        String delta = emitters.get(0).events().get(1);
+        assertTrue(delta.contains("event:delta") && delta.contains("BBBBB"), delta);
+        String snapshot = emitters.get(1).events().get(0);
+        assertTrue(snapshot.contains("event:snapshot") && snapshot.contains("BBBBB"), snapshot);
+    }
+
+    @Test
+    @DisplayName("assinante lento é desconectado e não atrasa os demais")
+    void slowSubscriberIsDropped() throws Exception {
+        newStream(2);
+        change(item("AAAAA", 1));
+        stream.subscribe();
+        await(() -> emitters.size() == 1 && emitters.get(0).events().size() == 1);
+        emitters.get(0).blocked = true; // próximo envio fica preso no socket
+        stream.subscribe();
+        await(() -> stream.subscriberCount() == 2);
+
+        for (int i = 2; i <= 6; i++) {
+            change(item("AAAAA", i));
+            int expected = i;
+            // tick() é pulado enquanto o anterior não terminou: repete até o delta chegar
+            await(() -> {
+                stream.tick();
+                return emitters.get(1).events().size() == expected;
+            });
+        }
+
+        assertEquals(1, stream.subscriberCount());
+        assertEquals(1, stream.droppedSubscribers());
+    }
+
+    @Test
+    @DisplayName("envios que nunca retornam não atrasam os demais assinantes")
+    void stalledSendsDoNotBlockOthers() throws Exception {
+        newStream(16);
+        change(item("AAAAA", 1));
+        // Mais assinantes presos do que núcleos: cada um prende apenas a própria thread
+        int stalled = Runtime.getRuntime().availableProcessors() + 4;
+        stallNewSubscribers = true;
+        for (int i = 0; i < stalled; i++) {
+            stream.subscribe();
+        }
+        await(() -> emitters.size() == stalled && emitters.stream().allMatch(e -> e.sending.get()));
+        stallNewSubscribers = false;
+        stream.subscribe();
+        await(() -> stream.subscriberCount() == stalled + 1);
+        RecordingEmitter healthy = emitters.get(stalled);
+
+        change(item("AAAAA", 2));
+        await(() -> {
+            stream.tick();
+            return healthy.events().size() == 2;
+        });
+
+        assertTrue(healthy.events().get(1).contains("event:delta"), healthy.events().get(1));
+    }
+
+    @Test
+    @DisplayName("envio parado além do timeout é interrompido e o emitter concluído com erro")
+    void stalledSendIsInterrupted() throws Exception {
+        newStream(16);
+        ReflectionTestUtils.setField(stream, "sendTimeoutMs", 50L);
+        change(item("AAAAA", 1));
+        stream.subscribe();
+        await(() -> emitters.size() == 1 && emitters.get(0).events().size() == 1);
+        RecordingEmitter slow = emitters.get(0);
+        slow.blocked = true;
+
+        change(item("AAAAA", 2));
+        await(() -> {
+            stream.tick();
+            return slow.failure.get() != null;
+        });
+
+        assertTrue(slow.interrupted.get());
+        assertEquals(0, stream.subscriberCount());
+        assertEquals(1, stream.droppedSubscribers());
+    }
+
+    /**
+     * Emitter que guarda os frames enviados; com {@code blocked}, o envio espera como um
+     * cliente com o buffer TCP cheio (até ser interrompido); com {@code stalled}, nem a
+     * interrupção o libera.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean sending = new AtomicBoolean();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        volatile boolean blocked;
+        volatile boolean stalled;
+
+        @Override
+        public void send(Set<DataWithMediaType> frame) throws IOException {
+            if (stalled) {
+                sending.set(true);
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                }
+                throw new IOException("Broken pipe");
+            }
+            if (blocked) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder text = new StringBuilder();
+            frame.forEach(d -> text.append(d.getData()));
+            events.add(text.toString());
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failure.set(ex);
+            super.completeWithError(ex);
+        }
+
+        List<String> events() {
+            return List.copyOf(events);
+        }
+    }
+
+    private static RankingItem item(String code, long hits) {
+        return new RankingItem(code, "https://ex.com/" + code, hits);
+    }
+
+    @Test
+    @DisplayName("delta contém apenas entradas novas, movidas ou com hits alterados e os códigos que saíram")
+    void diffReportsOnlyChanges() {
+        List<RankingItem> before = List.of(item("AAAAA", 10), item("BBBBB", 8), item("CCCCC", 5), item("DDDDD", 1));
+        List<RankingItem> after = List.of(item("AAAAA", 10), item("CCCCC", 9), item("BBBBB", 8), item("EEEEE", 2));
+
+        RankingDelta delta = RankingStream.diff(before, after, 7);
+
+        assertEquals(7, delta.version());
+        assertEquals(List.of(
+                new RankingPosition(2, "CCCCC", "https://ex.com/CCCCC", 9L),
+                new RankingPosition(3, "BBBBB", "https://ex.com/BBBBB", 8L),
+                new RankingPosition(4, "EEEEE", "https://ex.com/EEEEE", 2L)), delta.changed());
+        assertEquals(List.of("DDDDD"), delta.removed());
+    }
+
+    @Test
+    @DisplayName("rankings iguais geram delta vazio; ranking vazio remove todos")
+    void diffEdgeCases() {
+        List<RankingItem> top = List.of(item("AAAAA", 3), item("BBBBB", 2));
+        RankingDelta same = RankingStream.diff(top, top, 1);
+        assertTrue(same.changed().isEmpty());
+        assertTrue(same.removed().isEmpty());
+
+        RankingDelta cleared = RankingStream.diff(top, List.of(), 2);
+        assertTrue(cleared.changed().isEmpty());
+        assertEquals(List.of("AAAAA", "BBBBB"), cleared.removed());
+    }
+}
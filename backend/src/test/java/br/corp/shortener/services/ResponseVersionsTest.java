@@ -0,0 +1,68 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.repositories.ShortUrlDailyHitsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResponseVersionsTest {
+
+    private ShortUrlDailyHitsRepository dailyHitsRepository;
+    private ResponseVersions versions;
+
+    @BeforeEach
+    void setup() {
+        dailyHitsRepository = mock(ShortUrlDailyHitsRepository.class);
+        versions = new ResponseVersions(mock(TopRankingCache.class), dailyHitsRepository);
+        ReflectionTestUtils.setField(versions, "watermarkRefreshMs", 60_000L);
+    }
+
+    @Test
+    @DisplayName("ETag do resumo depende só dos dados: estável no tempo e igual entre instâncias")
+    void statsETag_dataOnly() {
+        when(dailyHitsRepository.sumAllHits()).thenReturn(42L);
+        long day = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+
+        String etag = versions.statsETag();
+        assertEquals("\"s-42-" + day + "\"", etag);
+        assertEquals(etag, versions.statsETag());
+        verify(dailyHitsRepository, times(1)).sumAllHits();
+
+        ResponseVersions other = new ResponseVersions(mock(TopRankingCache.class), dailyHitsRepository);
+        ReflectionTestUtils.setField(other, "watermarkRefreshMs", 60_000L);
+        assertEquals(etag, other.statsETag());
+    }
+
+    @Test
+    @DisplayName("gravação local relê a marca d'água; sem gravação, relê no máximo a cada watermark-refresh-ms")
+    void statsETag_refresh() {
+        when(dailyHitsRepository.sumAllHits()).thenReturn(1L, 2L, 7L);
+        String first = versions.statsETag();
+
+        versions.statsChanged();
+        String second = versions.statsETag();
+        assertNotEquals(first, second);
+        assertTrue(second.startsWith("\"s-2-"), second);
+
+        // Gravação de outra instância: visível quando a marca vence
+        assertEquals(second, versions.statsETag());
+        ReflectionTestUtils.setField(versions, "watermarkRefreshMs", 0L);
+        assertTrue(versions.statsETag().startsWith("\"s-7-"));
+        verify(dailyHitsRepository, times(3)).sumAllHits();
+    }
+
+    @Test
+    @DisplayName("ETag por código inclui o código e o total do link")
+    void statsCodeETag() {
+        assertNotEquals(versions.statsCodeETag("ABCDE", 3), versions.statsCodeETag("ABCDF", 3));
+        assertNotEquals(versions.statsCodeETag("ABCDE", 3), versions.statsCodeETag("ABCDE", 4));
+        assertEquals(versions.statsCodeETag("ABCDE", 3), versions.statsCodeETag("ABCDE", 3));
+    }
+}
@@ -0,0 +1,40 @@
+package br.corp.shortener.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    @DisplayName("sem falsos negativos mesmo após crescer além da capacidade inicial")
+    void noFalseNegativesAfterGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("https://ex.com/" + i);
+        }
+
+        assertTrue(filter.stageCount() > 1);
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain("https://ex.com/" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("taxa de falso positivo fica próxima do alvo")
+    void falsePositiveRateNearTarget() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("code-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) falsePositives++;
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "rate=" + rate);
+    }
+}
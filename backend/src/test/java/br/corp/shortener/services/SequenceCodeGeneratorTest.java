@@ -0,0 +1,67 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.repositories.ShortUrlRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SequenceCodeGeneratorTest {
+
+    private static ShortUrlRepository sequenceStub(long firstBlock) {
+        ShortUrlRepository repo = mock(ShortUrlRepository.class);
+        AtomicLong seq = new AtomicLong(firstBlock);
+        when(repo.nextCodeBlock()).thenAnswer(inv -> seq.getAndAdd(SequenceCodeGenerator.BLOCK_SIZE));
+        return repo;
+    }
+
+    @Test
+    @DisplayName("gera códigos base62 de 5 caracteres, únicos e reservando um bloco a cada 1000")
+    void uniqueCodesPerBlock() {
+        ShortUrlRepository repo = sequenceStub(0);
+        SequenceCodeGenerator generator = new SequenceCodeGenerator(repo, "test-secret");
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            String code = generator.nextCode();
+            assertTrue(code.matches("^[A-Za-z0-9]{5}$"), code);
+            assertTrue(codes.add(code), "duplicado: " + code);
+        }
+        verify(repo, times(5)).nextCodeBlock();
+        assertFalse(generator.requiresExistenceCheck());
+    }
+
+    @Test
+    @DisplayName("permutação é bijetiva e permanece no espaço 62^5")
+    void permutationIsBijective() {
+        SequenceCodeGenerator generator = new SequenceCodeGenerator(mock(ShortUrlRepository.class), "test-secret");
+        Set<Long> images = new HashSet<>();
+        for (long n = 0; n < 200_000; n++) {
+            long p = generator.permute(n);
+            assertTrue(p >= 0 && p < SequenceCodeGenerator.KEYSPACE);
+            assertTrue(images.add(p));
+        }
+        // Números consecutivos não geram códigos consecutivos
+        assertNotEquals(generator.permute(1) + 1, generator.permute(2));
+    }
+
+    @Test
+    @DisplayName("chaves diferentes produzem sequências de códigos diferentes")
+    void differentSecretsDiffer() {
+        SequenceCodeGenerator a = new SequenceCodeGenerator(sequenceStub(0), "secret-a");
+        SequenceCodeGenerator b = new SequenceCodeGenerator(sequenceStub(0), "secret-b");
+        assertNotEquals(a.nextCode(), b.nextCode());
+    }
+
+    @Test
+    @DisplayName("lança IllegalStateException quando o espaço de códigos se esgota")
+    void exhaustedKeyspace() {
+        SequenceCodeGenerator generator = new SequenceCodeGenerator(sequenceStub(SequenceCodeGenerator.KEYSPACE), "s");
+        assertThrows(IllegalStateException.class, generator::nextCode);
+    }
+}
@@ -0,0 +1,105 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.entities.ShortUrl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortUrlCacheTest {
+
+    private static ShortUrl su(String code, String url) {
+        return new ShortUrl(url, code, Instant.now());
+    }
+
+    private static ShortUrlCache boundedBySize(long maximumSize) {
+        // Executor síncrono para que evicção e listener rodem de forma determinística
+        return new ShortUrlCache(maximumSize, 0, 0, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("índices por código, URL e par retornam a mesma entidade")
+    void lookupsAreConsistent() {
+        ShortUrlCache cache = boundedBySize(10);
+        ShortUrl a = cache.put(su("AAAAA", "https://ex.com/a"));
+
+        assertSame(a, cache.getByUrl("https://ex.com/a").orElseThrow());
+        assertSame(a, cache.getByPair("AAAAA", "https://ex.com/a").orElseThrow());
+        assertTrue(cache.getByPair("AAAAA", "https://ex.com/other").isEmpty());
+        assertTrue(cache.containsCode("AAAAA"));
+        assertFalse(cache.containsCode("BBBBB"));
+    }
+
+    @Test
+    @DisplayName("índice por URL aponta para o código mais recente; leitura por código não o altera")
+    void urlIndexKeepsNewestCode() {
+        ShortUrlCache cache = boundedBySize(10);
+        Instant now = Instant.now();
+        ShortUrl older = new ShortUrl("https://ex.com/u", "OLD01", now.minusSeconds(60));
+        ShortUrl newer = new ShortUrl("https://ex.com/u", "NEW01", now);
+
+        cache.put(newer);
+        cache.put(older);
+        assertSame(newer, cache.getByUrl("https://ex.com/u").orElseThrow());
+
+        ShortUrlCache readThrough = boundedBySize(10);
+        readThrough.putByCode(older);
+        assertSame(older, readThrough.getByCode("OLD01").orElseThrow());
+        assertTrue(readThrough.getByUrl("https://ex.com/u").isEmpty());
+    }
+
+    @Test
+    @DisplayName("cache limitado evicta entradas e mantém o índice por URL consistente")
+    void evictionKeepsIndexesConsistent() {
+        ShortUrlCache cache = boundedBySize(50);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(su(String.format("C%04d", i), "https://ex.com/" + i));
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.estimatedSize() <= 50, "size=" + cache.estimatedSize());
+        assertTrue(cache.urlIndexSize() <= 50, "urlIndex=" + cache.urlIndexSize());
+        for (int i = 0; i < 1000; i++) {
+            String code = String.format("C%04d", i);
+            String url = "https://ex.com/" + i;
+            cache.getByUrl(url).ifPresent(found -> assertEquals(code, found.getCode()));
+            assertEquals(cache.containsCode(code), cache.getByPair(code, url).isPresent());
+        }
+    }
+
+    @Test
+    @DisplayName("entrada frequente sobrevive a uma varredura de entradas novas")
+    void frequentEntrySurvivesScan() {
+        ShortUrlCache cache = boundedBySize(20);
+        // Aquece o cache: o sketch de frequência só passa a contar com o cache parcialmente cheio
+        for (int i = 0; i < 20; i++) {
+            cache.put(su(String.format("F%04d", i), "https://ex.com/fill/" + i));
+        }
+        cache.put(su("HOT01", "https://ex.com/hot"));
+        for (int i = 0; i < 30; i++) {
+            cache.getByPair("HOT01", "https://ex.com/hot");
+        }
+        for (int i = 0; i < 500; i++) {
+            cache.put(su(String.format("S%04d", i), "https://ex.com/scan/" + i));
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.getByUrl("https://ex.com/hot").isPresent());
+    }
+
+    @Test
+    @DisplayName("limite por peso em bytes restringe o tamanho do cache")
+    void boundedByWeight() {
+        ShortUrlCache cache = new ShortUrlCache(0, 10_000, 0, Runnable::run);
+        for (int i = 0; i < 200; i++) {
+            cache.put(su(String.format("W%04d", i), "https://ex.com/" + "x".repeat(500) + i));
+        }
+        cache.cleanUp();
+
+        // ~760 bytes por entrada => no máximo 13 entradas em 10KB
+        assertTrue(cache.estimatedSize() <= 13, "size=" + cache.estimatedSize());
+        assertTrue(cache.urlIndexSize() <= 13, "urlIndex=" + cache.urlIndexSize());
+    }
+}
@@ -0,0 +1,28 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.exceptions.InvalidExportFormatException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsExporterTest {
+
+    @Test
+    @DisplayName("CSV escapa separador, aspas e quebras de linha")
+    void csvEscaping() {
+        assertEquals("https://ex.com/a", StatsExporter.csv("https://ex.com/a"));
+        assertEquals("\"https://ex.com/?a=1,2\"", StatsExporter.csv("https://ex.com/?a=1,2"));
+        assertEquals("\"say \"\"hi\"\"\"", StatsExporter.csv("say \"hi\""));
+        assertEquals("\"a\nb\"", StatsExporter.csv("a\nb"));
+        assertEquals("", StatsExporter.csv(null));
+    }
+
+    @Test
+    @DisplayName("formato é case-insensitive e rejeita valores desconhecidos")
+    void parseFormat() {
+        assertEquals(StatsExporter.Format.CSV, StatsExporter.Format.parse("CSV"));
+        assertEquals(StatsExporter.Format.NDJSON, StatsExporter.Format.parse("ndjson"));
+        assertThrows(InvalidExportFormatException.class, () -> StatsExporter.Format.parse("xml"));
+    }
+}
@@ -0,0 +1,244 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.entities.ShortUrl;
+import br.corp.shortener.repositories.CodeHits;
+import br.corp.shortener.repositories.ShortUrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TopRankingCacheTest {
+
+    private ShortUrlRepository shortUrlRepository;
+    private final Map<String, ShortUrl> entities = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setup() {
+        shortUrlRepository = mock(ShortUrlRepository.class);
+        when(shortUrlRepository.findByCode(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(entities.get(inv.<String>getArgument(0))));
+        when(shortUrlRepository.findByCodeIn(anyCollection())).thenAnswer(inv -> {
+            List<ShortUrl> found = new ArrayList<>();
+            for (String code : inv.<Collection<String>>getArgument(0)) {
+                ShortUrl su = entities.get(code);
+                if (su != null) found.add(su);
+            }
+            return found;
+        });
+    }
+
+    // Simula as consultas da recarga: Top-N ordenado e limitado pelo banco e contagens de todos os links
+    private void givenRanking(List<RankingItem> ranking) {
+        when(shortUrlRepository.findTopRanking(any(Pageable.class))).thenAnswer(inv -> ranking.stream()
+                .sorted(Comparator.comparingLong(RankingItem::hits).reversed())
+                .limit(inv.<Pageable>getArgument(0).getPageSize())
+                .toList());
+        when(shortUrlRepository.streamAllHitCounts()).thenAnswer(inv -> ranking.stream()
+                .map(r -> (CodeHits) new CodeHits() {
+                    public String getCode() { return r.code(); }
+                    public long getHits() { return r.hits(); }
+                }));
+    }
+
+    private ShortUrl su(String code) {
+        return entities.computeIfAbsent(code, c -> new ShortUrl("https://ex.com/" + c, c, Instant.now()));
+    }
+
+    private TopRankingCache preloaded(int members) {
+        return preloaded(members, List.of());
+    }
+
+    private TopRankingCache preloaded(int members, List<RankingItem> longTail) {
+        List<RankingItem> ranking = new ArrayList<>();
+        for (int i = 0; i < members; i++) {
+            String code = String.format("M%04d", i);
+            ranking.add(new RankingItem(code, su(code).getOriginalUrl(), (long) (i + 1)));
+        }
+        ranking.addAll(longTail);
+        givenRanking(ranking);
+        TopRankingCache cache = new TopRankingCache(shortUrlRepository, mock(PlatformTransactionManager.class), 0.0001, 0.01);
+        cache.preload();
+        return cache;
+    }
+
+    private static void assertDescending(List<RankingItem> top) {
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(top.get(i - 1).hits() >= top.get(i).hits(), "fora de ordem na posição " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("acessos concorrentes a membros do Top-100 não perdem incrementos")
+    void concurrentMemberHitsAreExact() throws Exception {
+        TopRankingCache cache = preloaded(100);
+        int threads = 64;
+        int perThread = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    cache.onAccess(su(String.format("M%04d", (offset + i) % 100)));
+                    if (i % 100 == 0) assertDescending(cache.getTop());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+
+        long expectedExtra = (long) threads * perThread / 100;
+        List<RankingItem> top = cache.getTop();
+        assertEquals(100, top.size());
+        assertDescending(top);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1 + expectedExtra, cache.getHits(String.format("M%04d", i)));
+        }
+        assertEquals("M0099", top.get(0).code());
+    }
+
+    @Test
+    @DisplayName("código fora do Top-100 substitui o menor membro pela estimativa do sketch")
+    void outsiderReplacesMinimum() {
+        // Fora do Top-100 na carga (empate com o menor membro), mas contado no sketch
+        TopRankingCache cache = preloaded(100, List.of(new RankingItem("NEW01", "https://ex.com/NEW01", 1L)));
+        assertFalse(cache.containsCode("NEW01"));
+
+        cache.onAccess(su("NEW01"));
+
+        assertTrue(cache.containsCode("NEW01"));
+        assertFalse(cache.containsCode("M0000"));
+        assertEquals(2L, cache.getTop().get(99).hits());
+        assertEquals(100, cache.getTop().size());
+        // Total estimado: getHits devolve null para o chamador buscar a contagem exata
+        assertNull(cache.getHits("NEW01"));
+        assertEquals(100L, cache.getHits("M0099"));
+
+        cache.onAccess(su("LOW01"));
+        assertFalse(cache.containsCode("LOW01"));
+    }
+
+    @Test
+    @DisplayName("membro evictado mantém no sketch os hits recebidos enquanto era membro")
+    void evictedMemberKeepsItsHits() {
+        TopRankingCache cache = preloaded(100);
+        cache.onAccess(su("M0000")); // membro: 1 -> 2 (o sketch ainda registra 1)
+
+        for (int i = 0; i < 3; i++) cache.onAccess(su("NEW01")); // 3 > mínimo (M0000 = 2)
+        assertTrue(cache.containsCode("NEW01"));
+        assertFalse(cache.containsCode("M0000"));
+
+        // Sem repor os hits no sketch a estimativa seria 2 e não superaria o mínimo (M0001 = 2)
+        cache.onAccess(su("M0000"));
+        assertTrue(cache.containsCode("M0000"));
+        assertFalse(cache.containsCode("M0001"));
+    }
+
+    @Test
+    @DisplayName("reconciliação recarrega contagens exatas do banco")
+    void reconcileRestoresExactCounts() {
+        TopRankingCache cache = preloaded(2);
+        cache.onAccess(su("NEW01"));
+        assertNull(cache.getHits("NEW01"));
+
+        givenRanking(List.of(
+                new RankingItem("M0000", "https://ex.com/M0000", 1L),
+                new RankingItem("NEW01", "https://ex.com/NEW01", 1L)));
+        cache.reconcile();
+
+        assertEquals(1L, cache.getHits("NEW01"));
+        assertFalse(cache.containsCode("M0001"));
+    }
+
+    @Test
+    @DisplayName("snapshot é reutilizado enquanto o ranking não muda")
+    void snapshotReusedUntilChange() {
+        TopRankingCache cache = preloaded(10);
+        List<RankingItem> first = cache.getTop();
+        assertSame(first, cache.getTop());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(null));
+
+        long version = cache.version();
+        cache.onAccess(su("M0000"));
+        assertTrue(cache.version() > version);
+        assertNotSame(first, cache.getTop());
+        verify(shortUrlRepository, times(1)).findTopRanking(any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("recarga lê o banco fora do lock e reaplica os acessos recebidos durante a leitura")
+    void reloadReplaysHitsDuringRead() throws Exception {
+        TopRankingCache cache = preloaded(2);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RankingItem> fromDb = List.of(
+                new RankingItem("M0000", "https://ex.com/M0000", 1L),
+                new RankingItem("M0001", "https://ex.com/M0001", 2L));
+        when(shortUrlRepository.findTopRanking(any(Pageable.class))).thenAnswer(inv -> {
+            reading.countDown();
+            release.await();
+            return fromDb;
+        });
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> reload = pool.submit(cache::reconcile);
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        // Leitura em andamento: acessos não esperam a recarga
+        pool.shutdown();
+        cache.onAccess(su("M0000"));
+        cache.onAccess(su("M0000"));
+        cache.onAccess(su("NEW01"));
+        release.countDown();
+        reload.get();
+
+        assertEquals(3L, cache.getHits("M0000"));
+        assertEquals(2L, cache.getHits("M0001"));
+        assertEquals(3L, cache.getTop().get(0).hits());
+        // Não membro: o acesso volta ao sketch do estado novo e conta para a admissão
+        cache.onAccess(su("NEW01"));
+        assertTrue(cache.containsCode("NEW01"));
+        verify(shortUrlRepository, never()).findByCode(anyString());
+    }
+
+    @Test
+    @DisplayName("falha na reconciliação mantém o Top-N e o sketch atuais")
+    void failedReconcileKeepsState() {
+        TopRankingCache cache = preloaded(3);
+        cache.onAccess(su("M0002"));
+        when(shortUrlRepository.streamAllHitCounts()).thenThrow(new IllegalStateException("connection timeout"));
+
+        cache.reconcile();
+
+        assertEquals(3, cache.getTop().size());
+        assertEquals(4L, cache.getHits("M0002"));
+        cache.onAccess(su("M0002"));
+        assertEquals(5L, cache.getHits("M0002"));
+    }
+}
@@ -0,0 +1,125 @@
+package br.corp.shortener.services;
+
+import br.corp.shortener.dto.RankingItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingRankingTest {
+
+    private static final Duration FIVE_MIN = Duration.ofMinutes(5);
+    private static final Duration ONE_HOUR = Duration.ofHours(1);
+    // Início alinhado a um balde de 5 s (5 min / 60) e de 60 s (1 h / 60)
+    private static final long T0 = 1_700_000_000_000L - (1_700_000_000_000L % 60_000);
+
+    private TrendingRanking ranking;
+
+    @BeforeEach
+    void setup() {
+        ranking = new TrendingRanking("5m,1h", 60);
+        ReflectionTestUtils.setField(ranking, "refreshMs", 0L);
+        ReflectionTestUtils.setField(ranking, "maxKeysPerBucket", 1000);
+    }
+
+    private void hit(String code, int times, long at) {
+        for (int i = 0; i < times; i++) ranking.record(code, "https://ex.com/" + code, at);
+    }
+
+    @Test
+    @DisplayName("acessos saem da janela curta mas continuam na longa")
+    void slidingWindows() {
+        hit("OLD01", 10, T0);
+        hit("NEW01", 3, T0 + Duration.ofMinutes(6).toMillis());
+
+        long now = T0 + Duration.ofMinutes(6).toMillis();
+        List<RankingItem> shortWindow = ranking.top(FIVE_MIN, 10, now);
+        assertEquals(1, shortWindow.size());
+        assertEquals("NEW01", shortWindow.get(0).code());
+        assertEquals(3L, shortWindow.get(0).hits());
+
+        List<RankingItem> longWindow = ranking.top(ONE_HOUR, 10, now);
+        assertEquals(List.of("OLD01", "NEW01"), longWindow.stream().map(RankingItem::code).toList());
+        assertEquals("https://ex.com/OLD01", longWindow.get(0).originalUrl());
+
+        // Duas horas depois o anel foi reaproveitado e nada sobra
+        assertTrue(ranking.top(ONE_HOUR, 10, T0 + Duration.ofHours(2).toMillis()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Top-N ordenado e limitado a 100 itens")
+    void topIsOrderedAndBounded() {
+        for (int i = 0; i < 150; i++) hit(String.format("C%04d", i), i + 1, T0);
+        List<RankingItem> top = ranking.top(FIVE_MIN, 500, T0);
+        assertEquals(100, top.size());
+        assertEquals("C0149", top.get(0).code());
+        assertEquals(150L, top.get(0).hits());
+        assertEquals(51L, top.get(99).hits());
+        assertEquals(5, ranking.top(FIVE_MIN, 5, T0).size());
+        assertThrows(IllegalArgumentException.class, () -> ranking.top(Duration.ofDays(1), 10, T0));
+    }
+
+    @Test
+    @DisplayName("balde cheio descarta os códigos menos acessados e aceita o novo")
+    void fullBucketEvictsSmallest() {
+        ReflectionTestUtils.setField(ranking, "maxKeysPerBucket", 32);
+        hit("HOT01", 50, T0);
+        hit("WARM1", 5, T0);
+        for (int i = 0; i < 100; i++) hit(String.format("N%04d", i), 1, T0);
+        hit("LATE1", 3, T0);
+
+        List<RankingItem> top = ranking.top(FIVE_MIN, 100, T0);
+        assertTrue(top.size() <= 32);
+        assertEquals(List.of("HOT01", "WARM1", "LATE1"), top.subList(0, 3).stream().map(RankingItem::code).toList());
+        assertEquals(50L, top.get(0).hits());
+        assertEquals(3L, top.get(2).hits());
+        assertTrue(ranking.evictedKeys() > 0);
+    }
+
+    @Test
+    @DisplayName("registros concorrentes durante a rotação de baldes não se perdem")
+    void concurrentRecordsAcrossRotation() throws Exception {
+        int threads = 16;
+        int perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                // Avança o relógio: cada thread atravessa 10 baldes da janela de 5 min
+                for (int i = 0; i < perThread; i++) {
+                    ranking.record("HOT01", "https://ex.com/HOT01", T0 + (i / 500) * 5_000L);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+
+        long now = T0 + 9 * 5_000L;
+        assertEquals((long) threads * perThread, ranking.top(FIVE_MIN, 1, now).get(0).hits());
+    }
+
+    @Test
+    @DisplayName("snapshot é reaproveitado dentro do intervalo de atualização")
+    void snapshotReusedWithinRefresh() {
+        ReflectionTestUtils.setField(ranking, "refreshMs", 2_000L);
+        hit("AAAAA", 1, T0);
+        List<RankingItem> first = ranking.top(FIVE_MIN, 10, T0);
+        hit("AAAAA", 1, T0 + 500);
+        assertSame(first, ranking.top(FIVE_MIN, 10, T0 + 1_000));
+        assertEquals(2L, ranking.top(FIVE_MIN, 10, T0 + 2_000).get(0).hits());
+    }
+}
@@ -1,11 +1,20 @@
 package br.corp.shortener.services;
 
+import br.corp.shortener.dto.DayHits;
 import br.corp.shortener.dto.RankingItem;
+import br.corp.shortener.dto.ShortenRequest;
+import br.corp.shortener.dto.StatsCodeSummaryResponse;
 import br.corp.shortener.entities.ShortUrl;
 import br.corp.shortener.entities.ShortUrlAccess;
 import br.corp.shortener.exceptions.DuplicateCodeException;
 import br.corp.shortener.repositories.ShortUrlAccessRepository;
+import br.corp.shortener.repositories.ShortUrlDailyHitsRepository;
 import br.corp.shortener.repositories.ShortUrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,10 +26,21 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -42,6 +62,9 @@ class UrlShortenerServiceTest {
     @Mock
     private TopRankingCache topRankingCache;
 
+    @Mock
+    private ShortUrlDailyHitsRepository dailyHitsRepository;
+
     @InjectMocks
     private UrlShortenerService service;
 
@@ -60,6 +83,7 @@ class UrlShortenerServiceTest {
         when(topRankingCache.containsCode(anyString())).thenReturn(false);
         when(topRankingCache.getEntity(anyString())).thenReturn(null);
         when(topRankingCache.getTop()).thenReturn(List.of());
+        when(topRankingCache.getHits(anyString())).thenReturn(null);
     }
 
     @Test
@@ -170,6 +194,22 @@ class UrlShortenerServiceTest {
         assertEquals("Abc12", result.getCode());
     }
 
+    @Test
+    @DisplayName("getByCode é read-through: segunda leitura vem do cache sem ir ao banco")
+    void getByCode_readThroughCache() {
+        ShortUrlCache cache = new ShortUrlCache(100, 0, 0, Runnable::run);
+        service.setShortUrlCache(cache);
+        ShortUrl su = buildShortUrl("https://ex.com", "Abc12");
+        when(shortUrlRepository.findByCode("Abc12")).thenReturn(Optional.of(su));
+
+        assertSame(su, service.getByCode("Abc12"));
+        assertSame(su, service.getByCode("Abc12"));
+
+        verify(shortUrlRepository, times(1)).findByCode("Abc12");
+        assertEquals(1, cache.codeHitCount());
+        assertEquals(1, cache.codeMissCount());
+    }
+
     @Test
     @DisplayName("getByCode não encontra e retorna null")
     void getByCode_notFound() {
@@ -177,6 +217,52 @@ class UrlShortenerServiceTest {
         assertNull(service.getByCode("XyZ99"));
     }
 
+    @Test
+    @DisplayName("getByCode usa cache negativo para códigos inexistentes e shorten invalida a entrada")
+    void getByCode_negativeCache() {
+        NegativeCodeCache negativeCache = new NegativeCodeCache(100, 60_000);
+        service.setNegativeCodeCache(negativeCache);
+        when(shortUrlRepository.findByCode("NoNe1")).thenReturn(Optional.empty());
+
+        assertNull(service.getByCode("NoNe1"));
+        assertNull(service.getByCode("NoNe1"));
+        verify(shortUrlRepository, times(1)).findByCode("NoNe1");
+        assertEquals(1, negativeCache.negativeHitCount());
+
+        when(shortUrlRepository.findByCodeAndOriginalUrl("NoNe1", "https://ex.com")).thenReturn(Optional.empty());
+        when(shortUrlRepository.existsByCode("NoNe1")).thenReturn(false);
+        ShortUrl saved = buildShortUrl("https://ex.com", "NoNe1");
+        when(shortUrlRepository.saveAndFlush(any(ShortUrl.class))).thenReturn(saved);
+        service.shorten("https://ex.com", "NoNe1");
+
+        assertFalse(negativeCache.isKnownMissing("NoNe1"));
+    }
+
+    @Test
+    @DisplayName("shorten pula sondagens de código no banco quando o filtro de Bloom garante ausência, mas não a de URL")
+    void shorten_bloomFilterSkipsDatabaseProbes() {
+        PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+        ShortUrlBloomFilters filters = new ShortUrlBloomFilters(shortUrlRepository, txManager, 1_000, 0.01);
+        ReflectionTestUtils.setField(filters, "enabled", true);
+        when(shortUrlRepository.streamAllKeys()).thenReturn(Stream.empty());
+        filters.rebuild();
+        service.setBloomFilters(filters);
+
+        ShortUrl saved = buildShortUrl("https://new.example.com", "NeW01");
+        when(shortUrlRepository.saveAndFlush(any(ShortUrl.class))).thenReturn(saved);
+
+        service.shorten("https://new.example.com", "NeW01");
+        service.shorten("https://other.example.com", null);
+
+        verify(shortUrlRepository, never()).findByCodeAndOriginalUrl(anyString(), anyString());
+        verify(shortUrlRepository, never()).existsByCode(anyString());
+        // Idempotência por URL consulta o banco mesmo com o filtro: outra instância pode ter criado o link
+        verify(shortUrlRepository, times(1)).findFirstByOriginalUrlOrderByCreatedAtDesc("https://other.example.com");
+        verify(shortUrlRepository, times(2)).saveAndFlush(any(ShortUrl.class));
+        // Após o commit, o código criado passa a constar no filtro
+        assertTrue(filters.mightContainCode("NeW01"));
+    }
+
     @Test
     @DisplayName("registerAccess persiste acesso com os campos esperados")
     void registerAccess_persistsAccess() {
@@ -209,4 +295,208 @@ class UrlShortenerServiceTest {
         verify(topRankingCache, times(1)).getTop();
         verifyNoInteractions(shortUrlRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("resumo por código: total por hit_count e últimos 7 dias pelo rollup diário")
+    void statsSummaryByCode_usesHitCountAndDailyRollup() {
+        ShortUrl su = buildShortUrl("https://ex.com", "SUMM1");
+        when(shortUrlRepository.findByCode("SUMM1")).thenReturn(Optional.of(su));
+        when(shortUrlRepository.findHitCountById(1L)).thenReturn(Optional.of(15L));
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        when(dailyHitsRepository.findDailyHitsSince(1L, today.minusDays(6))).thenReturn(List.of(
+                new DayHits(today.minusDays(6), 2L),
+                new DayHits(today, 3L)));
+
+        StatsCodeSummaryResponse summary = service.getStatsSummaryByCode("SUMM1");
+
+        assertEquals(15L, summary.totalHits());
+        assertEquals(5L, summary.last7DaysHits());
+        assertEquals(2, summary.daily().size());
+        verifyNoInteractions(shortUrlAccessRepository);
+    }
+
+    @Test
+    @DisplayName("stats soma hit_count persistido e hits pendentes da instância")
+    void stats_addsPendingHits() {
+        ShortUrl su = buildShortUrl("https://ex.com", "STAT1");
+        when(shortUrlRepository.findByCode("STAT1")).thenReturn(Optional.of(su));
+        when(shortUrlRepository.findHitCountById(1L)).thenReturn(Optional.of(40L));
+        HitCounter hitCounter = mock(HitCounter.class);
+        when(hitCounter.pending(1L)).thenReturn(2L);
+        service.setHitCounter(hitCounter);
+
+        assertEquals(42L, service.getStats("STAT1").hits());
+        verifyNoInteractions(shortUrlAccessRepository);
+    }
+
+    @Test
+    @DisplayName("shortenBatch resolve existentes com uma consulta por índice e insere os novos em lote")
+    void shortenBatch_resolvesAndInsertsInBulk() {
+        ShortUrl byUrl = buildShortUrl("https://ex.com/old", "OLD01");
+        ShortUrl byCode = buildShortUrl("https://ex.com/pair", "PAIR1");
+        ShortUrl taken = buildShortUrl("https://ex.com/other", "TAKEN");
+        when(shortUrlRepository.findByOriginalUrlIn(any())).thenReturn(List.of(byUrl));
+        when(shortUrlRepository.findByCodeIn(any())).thenReturn(List.of(byCode, taken));
+        when(shortUrlRepository.findExistingCodes(any())).thenReturn(List.of());
+        when(shortUrlRepository.insertAll(any())).thenAnswer(inv -> List.copyOf(inv.getArgument(0)));
+
+        List<BatchItemResult> results = service.shortenBatch(Arrays.asList(
+                new ShortenRequest("https://ex.com/old", null),
+                new ShortenRequest("https://ex.com/pair", "PAIR1"),
+                new ShortenRequest("https://ex.com/mine", "TAKEN"),
+                new ShortenRequest("https://ex.com/new", null),
+                new ShortenRequest("https://ex.com/new", null),
+                new ShortenRequest("https://ex.com/custom", "NEW01"),
+                new ShortenRequest("ftp://ex.com", null),
+                new ShortenRequest("https://ex.com/x", "bad")));
+
+        assertEquals(8, results.size());
+        assertEquals(BatchItemResult.Status.EXISTING, results.get(0).status());
+        assertSame(byUrl, results.get(0).shortUrl());
+        assertEquals(BatchItemResult.Status.EXISTING, results.get(1).status());
+        assertEquals(BatchItemResult.Status.CONFLICT, results.get(2).status());
+        assertEquals(BatchItemResult.Status.CREATED, results.get(3).status());
+        // URL repetida no lote: mesmo link, sem segundo insert
+        assertEquals(BatchItemResult.Status.EXISTING, results.get(4).status());
+        assertSame(results.get(3).shortUrl(), results.get(4).shortUrl());
+        assertEquals(BatchItemResult.Status.CREATED, results.get(5).status());
+        assertEquals("NEW01", results.get(5).shortUrl().getCode());
+        assertEquals(BatchItemResult.Status.INVALID, results.get(6).status());
+        assertEquals(BatchItemResult.Status.INVALID, results.get(7).status());
+
+        verify(shortUrlRepository, times(1)).findByOriginalUrlIn(any());
+        verify(shortUrlRepository, times(1)).findByCodeIn(any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<ShortUrl>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(shortUrlRepository, times(1)).insertAll(inserted.capture());
+        assertEquals(2, inserted.getValue().size());
+        verify(shortUrlRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("shortenBatch refaz item a item quando o insert em lote colide")
+    void shortenBatch_fallsBackOnConflict() {
+        when(shortUrlRepository.findByCodeIn(any())).thenReturn(List.of());
+        when(shortUrlRepository.insertAll(any())).thenThrow(new DataIntegrityViolationException("dup"));
+        ShortUrl raced = buildShortUrl("https://ex.com/a", "ABCDE");
+        when(shortUrlRepository.findByCodeAndOriginalUrl("ABCDE", "https://ex.com/a"))
+                .thenReturn(Optional.empty(), Optional.of(raced));
+        when(shortUrlRepository.existsByCode("ABCDE")).thenReturn(false);
+        when(shortUrlRepository.saveAndFlush(any(ShortUrl.class))).thenThrow(new DataIntegrityViolationException("dup"));
+
+        List<BatchItemResult> results = service.shortenBatch(List.of(new ShortenRequest("https://ex.com/a", "ABCDE")));
+
+        assertSame(raced, results.get(0).shortUrl());
+        // Criado por outra gravação: o item não foi criado por este lote
+        assertEquals(BatchItemResult.Status.EXISTING, results.get(0).status());
+        verify(shortUrlRepository, times(1)).saveAndFlush(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("shortenBatch refaz os itens pelo proxy transacional do serviço")
+    void shortenBatch_retriesThroughProxy() {
+        when(shortUrlRepository.findByCodeIn(any())).thenReturn(List.of());
+        when(shortUrlRepository.insertAll(any())).thenThrow(new DataIntegrityViolationException("dup"));
+        UrlShortenerService proxy = mock(UrlShortenerService.class);
+        ShortUrl created = buildShortUrl("https://ex.com/a", "ABCDE");
+        when(proxy.shortenWithOutcome("https://ex.com/a", "ABCDE")).thenReturn(new ShortenOutcome(created, true));
+        service.setSelf(proxy);
+
+        List<BatchItemResult> results = service.shortenBatch(List.of(new ShortenRequest("https://ex.com/a", "ABCDE")));
+
+        assertEquals(BatchItemResult.Status.CREATED, results.get(0).status());
+        assertSame(created, results.get(0).shortUrl());
+        verify(proxy).shortenWithOutcome("https://ex.com/a", "ABCDE");
+        verify(shortUrlRepository, never()).saveAndFlush(any(ShortUrl.class));
+    }
+
+    @Test
+    @DisplayName("métricas contam novas tentativas de código e fallbacks ao banco em getByCode")
+    void metrics_codeRetriesAndDbFallbacks() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.bindMetrics(registry);
+        Iterator<String> codes = List.of("TAKEN", "INCAC", "FREE1").iterator();
+        service.setCodeGenerator(new CodeGenerator() {
+            @Override
+            public String nextCode() {
+                return codes.next();
+            }
+
+            @Override
+            public boolean requiresExistenceCheck() {
+                return true;
+            }
+        });
+        when(shortUrlRepository.findFirstByOriginalUrlOrderByCreatedAtDesc("https://ex.com/m")).thenReturn(Optional.empty());
+        when(shortUrlRepository.existsByCode("TAKEN")).thenReturn(true);
+        when(topRankingCache.containsCode("INCAC")).thenReturn(true);
+        when(shortUrlRepository.saveAndFlush(any(ShortUrl.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        assertEquals("FREE1", service.shorten("https://ex.com/m", null).getCode());
+
+        assertEquals(1.0, registry.get("shortener.code.generation.retries").tag("reason", "database").functionCounter().count());
+        assertEquals(1.0, registry.get("shortener.code.generation.retries").tag("reason", "cache").functionCounter().count());
+        assertEquals(0.0, registry.get("shortener.code.generation.exhausted").functionCounter().count());
+
+        when(shortUrlRepository.findByCode("ZZZZZ")).thenReturn(Optional.empty());
+        assertNull(service.getByCode("ZZZZZ"));
+        assertEquals(1, registry.get("shortener.db.fallback").tag("result", "missing").timer().count());
+        assertEquals(0, registry.get("shortener.db.fallback").tag("result", "found").timer().count());
+    }
+
+    @Test
+    @DisplayName("eventos JFR: camada da busca em getByCode e tentativas da geração de código")
+    void jfrEvents_lookupTierAndCodeGeneration() throws Exception {
+        Iterator<String> codes = List.of("TAKEN", "FREE2").iterator();
+        service.setCodeGenerator(new CodeGenerator() {
+            @Override
+            public String nextCode() {
+                return codes.next();
+            }
+
+            @Override
+            public boolean requiresExistenceCheck() {
+                return true;
+            }
+        });
+        when(shortUrlRepository.findFirstByOriginalUrlOrderByCreatedAtDesc("https://ex.com/jfr")).thenReturn(Optional.empty());
+        when(shortUrlRepository.existsByCode("TAKEN")).thenReturn(true);
+        when(shortUrlRepository.saveAndFlush(any(ShortUrl.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(shortUrlRepository.findByCode("JfR01")).thenReturn(Optional.empty());
+
+        Path file = Files.createTempFile("shortener-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("br.corp.shortener.CodeLookup").withThreshold(Duration.ZERO);
+            recording.enable("br.corp.shortener.CodeGeneration").withThreshold(Duration.ZERO);
+            recording.start();
+            service.getByCode("JfR01");
+            service.shorten("https://ex.com/jfr", null);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+
+        RecordedEvent lookup = events.stream()
+                .filter(e -> e.getEventType().getName().equals("br.corp.shortener.CodeLookup"))
+                .filter(e -> "JfR01".equals(e.getString("code")))
+                .findFirst().orElseThrow();
+        assertEquals("database", lookup.getString("tier"));
+        assertFalse(lookup.getBoolean("found"));
+        RecordedEvent generation = events.stream()
+                .filter(e -> e.getEventType().getName().equals("br.corp.shortener.CodeGeneration"))
+                .findFirst().orElseThrow();
+        assertEquals(2, generation.getInt("attempts"));
+        assertEquals(1, generation.getInt("databaseRetries"));
+        assertTrue(generation.getBoolean("success"));
+    }
+
+    @Test
+    @DisplayName("perfil jfr/shortener.jfc é válido e habilita os eventos do encurtador")
+    void jfrProfile_enablesShortenerEvents() throws Exception {
+        Configuration profile = Configuration.create(Path.of("jfr", "shortener.jfc"));
+        for (String event : List.of("Redirect", "CodeLookup", "AccessWrite", "RankingReload", "RankingEviction", "CodeGeneration")) {
+            assertEquals("true", profile.getSettings().get("br.corp.shortener." + event + "#enabled"), event);
+        }
+    }
+}